@@ -0,0 +1,370 @@
+package nl.daanh.hiromi.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.*;
+
+/**
+ * Validates the annotations of every command at compile time and generates the command index the command manager registers
+ * commands from, so a command with missing or conflicting annotations fails the build instead of a shard
+ */
+@SupportedAnnotationTypes("*")
+public class CommandProcessor extends AbstractProcessor {
+    private static final String ANNOTATIONS_PACKAGE = "nl.daanh.hiromi.models.commands.annotations.";
+    private static final String BASE_COMMAND = "nl.daanh.hiromi.models.commands.IBaseCommand";
+    private static final String MESSAGE_COMMAND = "nl.daanh.hiromi.models.commands.ICommand";
+    private static final String GENERIC_COMMAND = "nl.daanh.hiromi.models.commands.IGenericCommand";
+    private static final String COMMAND_MANAGER = "nl.daanh.hiromi.CommandManager";
+    private static final String INDEX_PACKAGE = "nl.daanh.hiromi.commands";
+    private static final String INDEX_NAME = "CommandIndex";
+
+    private final List<CommandElement> commands = new ArrayList<>();
+    private boolean generated = false;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        final TypeElement baseCommand = this.processingEnv.getElementUtils().getTypeElement(BASE_COMMAND);
+        if (baseCommand == null || this.generated) return false;
+
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) continue;
+            if (!this.isSubtype(type, BASE_COMMAND)) continue;
+
+            final CommandElement command = this.readCommand(type);
+            if (command != null) this.commands.add(command);
+        }
+
+        if (roundEnv.processingOver() || this.commands.isEmpty()) return false;
+
+        this.commands.sort(Comparator.comparing(command -> command.type.getQualifiedName().toString()));
+        this.writeIndex(this.resolveInvokes());
+        this.generated = true;
+
+        return false;
+    }
+
+    private boolean isSubtype(TypeElement type, String name) {
+        final TypeElement superType = this.processingEnv.getElementUtils().getTypeElement(name);
+        return superType != null && this.processingEnv.getTypeUtils().isAssignable(
+                type.asType(),
+                this.processingEnv.getTypeUtils().erasure(superType.asType())
+        );
+    }
+
+    private void error(Element element, String message) {
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /**
+     * Gets the annotations of a type, unwrapping the containers of repeated annotations
+     */
+    private List<AnnotationMirror> getAnnotations(TypeElement type, String name, String containerName) {
+        final List<AnnotationMirror> mirrors = new ArrayList<>();
+        for (AnnotationMirror mirror : type.getAnnotationMirrors()) {
+            final String annotationName = ((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().toString();
+
+            if (annotationName.equals(ANNOTATIONS_PACKAGE + name)) {
+                mirrors.add(mirror);
+            } else if (containerName != null && annotationName.equals(ANNOTATIONS_PACKAGE + containerName)) {
+                @SuppressWarnings("unchecked") final List<? extends AnnotationValue> values = (List<? extends AnnotationValue>) getValue(mirror, "value").getValue();
+                for (AnnotationValue value : values) mirrors.add((AnnotationMirror) value.getValue());
+            }
+        }
+
+        return mirrors;
+    }
+
+    private AnnotationValue getValue(AnnotationMirror mirror, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : this.processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) return entry.getValue();
+        }
+
+        throw new IllegalStateException("Annotation has no value " + name);
+    }
+
+    private List<Permission> readPermissions(TypeElement type, String name, String containerName) {
+        final List<Permission> permissions = new ArrayList<>();
+        for (AnnotationMirror mirror : this.getAnnotations(type, name, containerName)) {
+            permissions.add(new Permission(
+                    ((VariableElement) getValue(mirror, "value").getValue()).getSimpleName().toString(),
+                    (String) getValue(mirror, "errorMessage").getValue()
+            ));
+        }
+
+        return permissions;
+    }
+
+    private CommandElement readCommand(TypeElement type) {
+        boolean valid = true;
+
+        if (!type.getModifiers().contains(Modifier.PUBLIC)) {
+            this.error(type, "Commands have to be public.");
+            valid = false;
+        }
+
+        final List<AnnotationMirror> categories = this.getAnnotations(type, "CommandCategory", null);
+        if (categories.isEmpty()) {
+            this.error(type, "Command category is required.");
+            valid = false;
+        }
+
+        final List<Permission> selfPermissions = this.readPermissions(type, "SelfPermission", "SelfPermissions");
+        if (selfPermissions.isEmpty()) {
+            this.error(type, "Command self permissions are required.");
+            valid = false;
+        }
+
+        final List<String> invokes = new ArrayList<>();
+        for (AnnotationMirror mirror : this.getAnnotations(type, "CommandInvoke", "CommandInvokes")) {
+            final String invoke = (String) getValue(mirror, "value").getValue();
+            if (invoke.isEmpty() || !invoke.equals(invoke.toLowerCase(Locale.ROOT)) || invoke.chars().anyMatch(Character::isWhitespace)) {
+                this.error(type, String.format("Command invoke \"%s\" has to be lower case without whitespace.", invoke));
+                valid = false;
+            }
+            invokes.add(invoke);
+        }
+
+        final boolean messageCommand = this.isSubtype(type, MESSAGE_COMMAND);
+        if (messageCommand && invokes.isEmpty()) {
+            this.error(type, "Command invoke(s) are required.");
+            valid = false;
+        }
+
+        Boolean takesCommandManager = null;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (!constructor.getModifiers().contains(Modifier.PUBLIC)) continue;
+
+            final List<? extends VariableElement> parameters = constructor.getParameters();
+            if (parameters.isEmpty()) {
+                takesCommandManager = false;
+                break;
+            }
+
+            final TypeMirror parameter = parameters.get(0).asType();
+            if (parameters.size() == 1 && parameter.toString().equals(COMMAND_MANAGER)) takesCommandManager = true;
+        }
+
+        if (takesCommandManager == null) {
+            this.error(type, "Commands need a public constructor without parameters or with only the command manager.");
+            valid = false;
+        }
+
+        String rateLimits = "RateLimits.DEFAULT";
+        final List<AnnotationMirror> rateLimitAnnotations = this.getAnnotations(type, "RateLimit", null);
+        if (!rateLimitAnnotations.isEmpty()) {
+            final AnnotationMirror rateLimit = rateLimitAnnotations.get(0);
+            final int seconds = (Integer) getValue(rateLimit, "seconds").getValue();
+            if (seconds <= 0) {
+                this.error(type, "The rate limit period has to be at least a second.");
+                valid = false;
+            }
+
+            rateLimits = String.format("new RateLimits(%s, %s, %s, %s)",
+                    getValue(rateLimit, "user").getValue(),
+                    getValue(rateLimit, "channel").getValue(),
+                    getValue(rateLimit, "guild").getValue(),
+                    seconds
+            );
+        }
+
+        if (!valid) return null;
+
+        return new CommandElement(type,
+                ((VariableElement) getValue(categories.get(0), "value").getValue()).getSimpleName().toString(),
+                invokes,
+                this.readPermissions(type, "UserPermission", "UserPermissions"),
+                selfPermissions,
+                rateLimits,
+                messageCommand,
+                this.isSubtype(type, GENERIC_COMMAND),
+                takesCommandManager
+        );
+    }
+
+    /**
+     * Maps every message invoke to the index of its command, message commands take precedence over generic commands
+     *
+     * @return the invokes in sorted order
+     */
+    private Map<String, Integer> resolveInvokes() {
+        final Map<String, Integer> invokes = new TreeMap<>();
+
+        for (int i = 0; i < this.commands.size(); i++) {
+            final CommandElement command = this.commands.get(i);
+            if (!command.messageCommand) continue;
+
+            for (String invoke : command.invokes) {
+                final Integer existing = invokes.put(invoke, i);
+                if (existing != null && existing != i) {
+                    this.error(command.type, String.format("Invoke \"%s\" has already been defined by %s.", invoke, this.commands.get(existing).type.getSimpleName()));
+                }
+            }
+        }
+
+        for (int i = 0; i < this.commands.size(); i++) {
+            final CommandElement command = this.commands.get(i);
+            if (command.messageCommand || !command.genericCommand) continue;
+
+            for (String invoke : command.invokes) invokes.putIfAbsent(invoke, i);
+        }
+
+        return invokes;
+    }
+
+    private static String quote(String value) {
+        final StringBuilder builder = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7E) builder.append(String.format("\\u%04x", (int) c));
+                    else builder.append(c);
+            }
+        }
+
+        return builder.append('"').toString();
+    }
+
+    private static String permissionArray(List<Permission> permissions) {
+        final StringJoiner joiner = new StringJoiner(", ", "new net.dv8tion.jda.api.Permission[]{", "}");
+        permissions.forEach(permission -> joiner.add("net.dv8tion.jda.api.Permission." + permission.name));
+        return joiner.toString();
+    }
+
+    private static String errorMessageArray(List<Permission> permissions) {
+        final StringJoiner joiner = new StringJoiner(", ", "new String[]{", "}");
+        permissions.forEach(permission -> joiner.add(quote(permission.errorMessage)));
+        return joiner.toString();
+    }
+
+    private void writeIndex(Map<String, Integer> invokes) {
+        final Element[] originatingElements = this.commands.stream().map(command -> command.type).toArray(Element[]::new);
+
+        try (PrintWriter writer = new PrintWriter(this.processingEnv.getFiler().createSourceFile(INDEX_PACKAGE + "." + INDEX_NAME, originatingElements).openWriter())) {
+            writer.println("package " + INDEX_PACKAGE + ";");
+            writer.println();
+            writer.println("import nl.daanh.hiromi.CommandManager;");
+            writer.println("import nl.daanh.hiromi.models.commands.CommandDescriptor;");
+            writer.println("import nl.daanh.hiromi.models.commands.RateLimits;");
+            writer.println("import nl.daanh.hiromi.models.commands.annotations.CommandCategory;");
+            writer.println();
+            writer.println("import javax.annotation.processing.Generated;");
+            writer.println("import java.util.Arrays;");
+            writer.println("import java.util.List;");
+            writer.println();
+            writer.println("/**");
+            writer.println(" * Every command in the project, generated from their annotations");
+            writer.println(" */");
+            writer.println("@Generated(\"" + CommandProcessor.class.getName() + "\")");
+            writer.println("public final class " + INDEX_NAME + " {");
+
+            final StringJoiner invokeNames = new StringJoiner(", ");
+            final StringJoiner invokeCommands = new StringJoiner(", ");
+            invokes.forEach((invoke, index) -> {
+                invokeNames.add(quote(invoke));
+                invokeCommands.add(String.valueOf(index));
+            });
+            writer.println("    // Sorted message invokes and the index of the command each of them belongs to");
+            writer.println("    private static final String[] INVOKES = {" + invokeNames + "};");
+            writer.println("    private static final int[] INVOKE_COMMANDS = {" + invokeCommands + "};");
+            writer.println();
+            writer.println("    private " + INDEX_NAME + "() {");
+            writer.println("    }");
+            writer.println();
+            writer.println("    /**");
+            writer.println("     * Creates every command together with its descriptor");
+            writer.println("     *");
+            writer.println("     * @param commandManager the command manager the commands are created for");
+            writer.println("     * @return the descriptors, indexed like {@link #indexOf(String)}");
+            writer.println("     */");
+            writer.println("    public static CommandDescriptor[] createDescriptors(CommandManager commandManager) {");
+            writer.println("        return new CommandDescriptor[]{");
+            for (CommandElement command : this.commands) {
+                final StringJoiner commandInvokes = new StringJoiner(", ", "List.of(", ")");
+                command.invokes.forEach(invoke -> commandInvokes.add(quote(invoke)));
+
+                writer.println("                new CommandDescriptor(");
+                writer.println("                        new " + command.type.getQualifiedName() + "(" + (command.takesCommandManager ? "commandManager" : "") + "),");
+                writer.println("                        CommandCategory.CATEGORY." + command.category + ",");
+                writer.println("                        " + commandInvokes + ",");
+                writer.println("                        " + permissionArray(command.userPermissions) + ",");
+                writer.println("                        " + errorMessageArray(command.userPermissions) + ",");
+                writer.println("                        " + permissionArray(command.selfPermissions) + ",");
+                writer.println("                        " + errorMessageArray(command.selfPermissions) + ",");
+                writer.println("                        " + command.rateLimits);
+                writer.println("                ),");
+            }
+            writer.println("        };");
+            writer.println("    }");
+            writer.println();
+            writer.println("    /**");
+            writer.println("     * Looks up the command a message invoke belongs to");
+            writer.println("     *");
+            writer.println("     * @param invoke the lower cased invoke");
+            writer.println("     * @return the index of the command, -1 when no command has the invoke");
+            writer.println("     */");
+            writer.println("    public static int indexOf(String invoke) {");
+            writer.println("        final int index = Arrays.binarySearch(INVOKES, invoke);");
+            writer.println("        return index < 0 ? -1 : INVOKE_COMMANDS[index];");
+            writer.println("    }");
+            writer.println("}");
+        } catch (IOException exception) {
+            this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write the command index: " + exception.getMessage());
+        }
+    }
+
+    private static class Permission {
+        private final String name;
+        private final String errorMessage;
+
+        private Permission(String name, String errorMessage) {
+            this.name = name;
+            this.errorMessage = errorMessage;
+        }
+    }
+
+    private static class CommandElement {
+        private final TypeElement type;
+        private final String category;
+        private final List<String> invokes;
+        private final List<Permission> userPermissions;
+        private final List<Permission> selfPermissions;
+        private final String rateLimits;
+        private final boolean messageCommand;
+        private final boolean genericCommand;
+        private final boolean takesCommandManager;
+
+        private CommandElement(TypeElement type, String category, List<String> invokes, List<Permission> userPermissions, List<Permission> selfPermissions, String rateLimits, boolean messageCommand, boolean genericCommand, boolean takesCommandManager) {
+            this.type = type;
+            this.category = category;
+            this.invokes = invokes;
+            this.userPermissions = userPermissions;
+            this.selfPermissions = selfPermissions;
+            this.rateLimits = rateLimits;
+            this.messageCommand = messageCommand;
+            this.genericCommand = genericCommand;
+            this.takesCommandManager = takesCommandManager;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package nl.daanh.hiromi.models.commands;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares parsing a message with {@link CommandInput} to the regex based parsing it replaced, run with the gc profiler
+ * to compare the allocations per message
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandInputBenchmark {
+    private static final String PREFIX = "hi!";
+
+    @Param({
+            "hi!ping",
+            "HI!bank take 500 cash",
+            "hi!say the quick brown fox jumps over the lazy dog and keeps on running for a while",
+            "just a regular message in a busy channel"
+    })
+    public String content;
+
+    /**
+     * The parsing before {@link CommandInput}, strips the prefix wherever it is and splits every message eagerly
+     */
+    @Benchmark
+    public void replaceFirstAndSplit(Blackhole blackhole) {
+        final String[] splitMessage = this.content.replaceFirst("(?i)" + Pattern.quote(PREFIX), "").split("\\s+");
+        final List<String> args = Arrays.asList(splitMessage).subList(1, splitMessage.length);
+
+        blackhole.consume(splitMessage[0].toLowerCase());
+        blackhole.consume(args.size());
+    }
+
+    @Benchmark
+    public void commandInput(Blackhole blackhole) {
+        final CommandInput input = CommandInput.parse(this.content, PREFIX);
+        if (input == null) return;
+
+        blackhole.consume(input.getInvoke());
+        blackhole.consume(input.getArgs().size());
+    }
+}
@@ -3,178 +3,349 @@ package nl.daanh.hiromi;
 import net.dv8tion.jda.api.events.interaction.ButtonClickEvent;
 import net.dv8tion.jda.api.events.interaction.SlashCommandEvent;
 import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
-import nl.daanh.hiromi.commands.fun.BalanceCommand;
-import nl.daanh.hiromi.commands.fun.BankCommand;
-import nl.daanh.hiromi.commands.other.LoadCommand;
-import nl.daanh.hiromi.commands.other.PingCommand;
-import nl.daanh.hiromi.commands.other.SettingsCommand;
-import nl.daanh.hiromi.commands.other.StatusCommand;
-import nl.daanh.hiromi.commands.personality.SetTimezoneCommand;
-import nl.daanh.hiromi.commands.personality.TimezoneCommand;
+import nl.daanh.hiromi.commands.CommandIndex;
+import nl.daanh.hiromi.events.ButtonIdCodec;
+import nl.daanh.hiromi.events.CommandRateLimiter;
+import nl.daanh.hiromi.events.PermissionCache;
+import nl.daanh.hiromi.events.GuildFairScheduler;
+import nl.daanh.hiromi.events.WorkerPool;
+import nl.daanh.hiromi.metrics.PipelineMetrics;
 import nl.daanh.hiromi.models.commandcontext.*;
+import nl.daanh.hiromi.models.commands.ButtonId;
+import nl.daanh.hiromi.models.commands.CommandDescriptor;
+import nl.daanh.hiromi.models.commands.CommandInput;
+import nl.daanh.hiromi.models.commands.IAsyncCommand;
+import nl.daanh.hiromi.models.commands.IAsyncGenericCommand;
+import nl.daanh.hiromi.models.commands.IAsyncSlashCommand;
 import nl.daanh.hiromi.models.commands.IBaseCommand;
 import nl.daanh.hiromi.models.commands.ICommand;
 import nl.daanh.hiromi.models.commands.IGenericCommand;
 import nl.daanh.hiromi.models.commands.ISlashCommand;
 import nl.daanh.hiromi.models.commands.annotations.CommandCategory;
-import nl.daanh.hiromi.models.commands.annotations.CommandInvoke;
-import nl.daanh.hiromi.models.commands.annotations.SelfPermission;
 import nl.daanh.hiromi.models.configuration.IHiromiConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 public class CommandManager {
+    // Discord fails an interaction that has not been acknowledged within 3 seconds
+    private static final long INTERACTION_DEFER_AFTER_MS = 2500;
     private final Logger LOGGER = LoggerFactory.getLogger(CommandManager.class);
-    private final HashMap<String, ICommand> commands = new HashMap<>();
-    private final HashMap<String, ISlashCommand> slashCommands = new HashMap<>();
-    private final HashMap<String, IGenericCommand> genericCommands = new HashMap<>();
-
-    public CommandManager(IHiromiConfig config) {
-        // Miscellaneous
-        addCommand(new PingCommand());
-        addCommand(new LoadCommand(this));
-        addCommand(new SettingsCommand());
-        addCommand(new StatusCommand());
-
-        // Currency system
-        addCommand(new BankCommand());
-        addCommand(new BalanceCommand());
-
-        // Personality system
-        addCommand(new SetTimezoneCommand());
-        addCommand(new TimezoneCommand());
-    }
-
-    private void addCommand(IBaseCommand command) {
-        CommandCategory commandCategory = command.getClass().getAnnotation(CommandCategory.class);
-        if (commandCategory == null)
-            throw new RuntimeException("Command category is required.");
-        if (command.getClass().getAnnotationsByType(SelfPermission.class).length == 0)
-            throw new RuntimeException("Command self permissions are required.");
-
-        if (commandCategory.value() == CommandCategory.CATEGORY.MUSIC && !Hiromi.getConfig().getMusicEnabled())
-            return;
-
-        if (command instanceof ICommand)
-            this.addGuildCommand((ICommand) command);
-
-        if (command instanceof ISlashCommand)
-            this.addSlashCommand((ISlashCommand) command);
+    private final ScheduledExecutorService interactionDeadlineExecutor = Executors.newSingleThreadScheduledExecutor((r) -> {
+        final Thread thread = new Thread(r, "Hiromi-Interaction-Deadline");
+        thread.setDaemon(true);
+
+        return thread;
+    });
+    // Replaced as a whole whenever the commands change, read it once per lookup
+    private volatile CommandRegistry registry;
+    private final Executor commandExecutor;
+    private final GuildFairScheduler scheduler;
+    private final CommandRateLimiter rateLimiter;
+    private final PermissionCache permissionCache;
+    private final ButtonIdCodec buttonIdCodec;
+    private final CommandRegistrationService registrationService;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final int commandTimeout;
+
+    public CommandManager(IHiromiConfig config, WorkerPool workerPool) {
+        // Virtual threads don't hold on to a platform thread while a command blocks on the data source
+        this.commandExecutor = config.getVirtualThreadsEnabled()
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("Hiromi-Command-", 0).factory())
+                : workerPool;
+        this.scheduler = new GuildFairScheduler(this.commandExecutor,
+                config.getCommandConcurrency(),
+                config.getGuildCommandConcurrency(),
+                config.getGuildCommandBudget()
+        );
+        this.rateLimiter = new CommandRateLimiter(config.getRateLimitBuckets());
+        this.permissionCache = new PermissionCache(config.getPermissionCacheSize());
+        this.commandTimeout = config.getCommandTimeout();
+
+        // Commands are found, validated and indexed at compile time by the command processor
+        final CommandDescriptor[] descriptors = CommandIndex.createDescriptors(this);
+        this.buttonIdCodec = new ButtonIdCodec(getButtonSecret(config), descriptors, config.getButtonMaxAge());
+        for (int i = 0; i < descriptors.length; i++) {
+            if (!isAvailable(descriptors[i], config)) descriptors[i] = null;
+        }
+        this.registry = new CommandRegistry(descriptors, new boolean[descriptors.length]);
 
-        if (command instanceof IGenericCommand)
-            this.addGenericCommand((IGenericCommand) command);
+        this.registrationService = new CommandRegistrationService(this, config);
     }
 
-    private void addGuildCommand(ICommand command) {
-        if (command.getClass().getAnnotationsByType(CommandInvoke.class).length == 0)
-            throw new RuntimeException("Command invoke(s) are required.");
+    private byte[] getButtonSecret(IHiromiConfig config) {
+        if (!config.getButtonSecret().isEmpty()) return config.getButtonSecret().getBytes(StandardCharsets.UTF_8);
 
-        for (CommandInvoke annotation : command.getClass().getAnnotationsByType(CommandInvoke.class)) {
-            if (this.commands.containsKey(annotation.value())) {
-                throw new RuntimeException("Invoke has already been defined!");
-            }
-            this.commands.put(annotation.value(), command);
-        }
+        LOGGER.info("No button secret has been configured, buttons created before a restart will stop working.");
+        final byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        return secret;
     }
 
-    private void addSlashCommand(ISlashCommand command) {
-        if (this.slashCommands.containsKey(command.getInvoke())) {
-            throw new RuntimeException("Invoke has already been defined!");
-        }
-        this.slashCommands.put(command.getInvoke(), command);
+    private static boolean isAvailable(CommandDescriptor descriptor, IHiromiConfig config) {
+        return descriptor.getCategory() != CommandCategory.CATEGORY.MUSIC || config.getMusicEnabled();
     }
 
-    private void addGenericCommand(IGenericCommand command) {
-        if (this.genericCommands.containsKey(command.getCommandDefinition().getName())) {
-            throw new RuntimeException("Invoke has already been defined!");
-        }
+    /**
+     * Gets the current snapshot of the registered commands
+     *
+     * @return the command registry
+     */
+    public CommandRegistry getRegistry() {
+        return this.registry;
+    }
 
-        this.genericCommands.put(command.getCommandDefinition().getName(), command);
+    /**
+     * Replaces every registered command at once, commands that are already running are not affected
+     *
+     * @param registry the new command registry
+     */
+    public synchronized void setRegistry(CommandRegistry registry) {
+        this.registry = registry;
+    }
 
-        for (CommandInvoke annotation : command.getClass().getAnnotationsByType(CommandInvoke.class)) {
-            if (this.commands.containsKey(annotation.value())) {
-                continue;
-            }
-            this.genericCommands.put(annotation.value(), command);
-        }
+    /**
+     * Enables or disables a command until the bot restarts
+     *
+     * @param name    an invoke or name of the command
+     * @param enabled whether the command should be enabled
+     * @return false when there is no such command
+     */
+    public synchronized boolean setEnabled(String name, boolean enabled) {
+        final int index = this.registry.indexOf(name);
+        if (index == -1) return false;
+
+        if (this.registry.isEnabled(index) != enabled)
+            this.registry = this.registry.withEnabled(index, enabled);
+        return true;
     }
 
     public List<ISlashCommand> getSlashCommands() {
-        List<ISlashCommand> slashCommands = new ArrayList<>();
-        this.slashCommands.forEach((s, command) -> {
-            if (!slashCommands.contains(command)) slashCommands.add(command);
-        });
-        return slashCommands;
+        return this.registry.getSlashCommands();
     }
 
     public List<IGenericCommand> getGenericCommands() {
-        List<IGenericCommand> genericCommands = new ArrayList<>();
-        this.genericCommands.forEach((s, command) -> {
-            if (!genericCommands.contains(command)) genericCommands.add(command);
-        });
-        return genericCommands;
+        return this.registry.getGenericCommands();
     }
 
     @Nullable
     public ICommand getCommand(String invoke) {
-        return this.commands.getOrDefault(invoke.toLowerCase(), null);
+        final IBaseCommand command = this.registry.getIndexedCommand(invoke);
+        return command instanceof ICommand ? (ICommand) command : null;
     }
 
     @Nullable
     public ISlashCommand getSlashCommand(String invoke) {
-        return this.slashCommands.getOrDefault(invoke.toLowerCase(), null);
+        return this.registry.getSlashCommand(invoke);
     }
 
     @Nullable
     public IGenericCommand getGenericCommand(String invoke) {
-        return this.genericCommands.getOrDefault(invoke.toLowerCase(), null);
+        return this.registry.getGenericCommand(invoke);
+    }
+
+    /**
+     * Gets the annotations of a registered command, generated at compile time
+     *
+     * @param command the registered command
+     * @return the descriptor of the command, null when the command is not registered
+     */
+    @Nullable
+    public CommandDescriptor getDescriptor(IBaseCommand command) {
+        return this.registry.getDescriptor(command);
     }
 
     private boolean cantContinue(IBaseCommand command, IBaseCommandContext ctx) {
-        CommandCategory.CATEGORY category = command.getClass().getAnnotation(CommandCategory.class).value();
+        final CommandDescriptor descriptor = this.registry.getDescriptor(command);
+        final CommandCategory.CATEGORY category = descriptor.getCategory();
 
-        if (category != CommandCategory.CATEGORY.OTHER && !Hiromi.getConfig().getDatabaseManager().getCategoryEnabled(ctx.getGuild(), category))
+        if (category != CommandCategory.CATEGORY.OTHER && !ctx.getSettings().getCategoryEnabled(ctx.getGuild(), category))
             return true;
 
-        return !command.checkPermissions(ctx);
+        return !descriptor.checkPermissions(ctx, this.permissionCache);
     }
 
     public void handle(GuildMessageReceivedEvent event, final String prefix) {
-        final String[] splitMessage = event.getMessage().getContentRaw().replaceFirst("(?i)" + Pattern.quote(prefix), "").split("\\s+");
-        final List<String> args = Arrays.asList(splitMessage).subList(1, splitMessage.length);
+        final CommandInput input = CommandInput.parse(event.getMessage().getContentRaw(), prefix);
+        if (input == null) return;
 
-        ICommand command = this.getCommand(splitMessage[0].toLowerCase());
+        ICommand command = this.getCommand(input.getInvoke());
         if (command != null) {
-            ICommandContext ctx = new GuildMessageCommandContext(event, args, Hiromi.getConfig());
-            if (cantContinue(command, ctx)) return;
+            ICommandContext ctx = new GuildMessageCommandContext(event, input.getArgs(), Hiromi.getConfig());
+            this.execute(command, ctx, null, command instanceof IAsyncCommand
+                    ? () -> ((IAsyncCommand) command).handleAsync(ctx)
+                    : blocking(() -> command.handle(ctx)));
+            return;
+        }
+
+        IGenericCommand genericCommand = this.getGenericCommand(input.getInvoke());
+        if (genericCommand == null) return;
+        IGenericCommandContext ctx = new GenericCommandContext(event, Hiromi.getConfig());
+        this.execute(genericCommand, ctx, null, genericCommand instanceof IAsyncGenericCommand
+                ? () -> ((IAsyncGenericCommand) genericCommand).handleAsync(ctx)
+                : blocking(() -> genericCommand.handle(ctx)));
+    }
+
+    /**
+     * Defers the reply of an interaction that is still being handled close to its deadline
+     *
+     * @param event the interaction that is being handled
+     * @param ctx   the context the command replies through
+     * @return the scheduled deferral, cancel it once the command has finished
+     */
+    private ScheduledFuture<?> scheduleDeferral(SlashCommandEvent event, IBaseCommandContext ctx) {
+        final long age = System.currentTimeMillis() - event.getTimeCreated().toInstant().toEpochMilli();
+        final long delay = INTERACTION_DEFER_AFTER_MS - Math.max(0, age);
+        return this.interactionDeadlineExecutor.schedule(ctx::deferReplyIfPending, Math.max(0, delay), TimeUnit.MILLISECONDS);
+    }
+
+    public GuildFairScheduler getScheduler() {
+        return this.scheduler;
+    }
+
+    public int getInFlight() {
+        return this.inFlight.get();
+    }
+
+    public PermissionCache getPermissionCache() {
+        return this.permissionCache;
+    }
+
+    public ButtonIdCodec getButtonIdCodec() {
+        return this.buttonIdCodec;
+    }
 
+    public CommandRegistrationService getRegistrationService() {
+        return this.registrationService;
+    }
+
+    /**
+     * Creates the signed component id of a button that is handled by a slash command
+     *
+     * @param command  the command that handles the button
+     * @param subtype  the subtype the command receives
+     * @param authorId the id of the only user allowed to press the button
+     * @param args     the arguments the command receives
+     * @return the component id
+     * @throws IllegalArgumentException when the command isn't enabled or the data doesn't fit in a component id
+     */
+    public String createButtonId(ISlashCommand command, String subtype, long authorId, String... args) {
+        final int index = this.registry.indexOf(command);
+        if (index == -1) throw new IllegalArgumentException("The command has not been registered");
+
+        return this.buttonIdCodec.encode(index, subtype, authorId, args);
+    }
+
+    /**
+     * Adapts the handler of a blocking command, the future completes once the handler has returned
+     */
+    private static Supplier<CompletableFuture<?>> blocking(Runnable handler) {
+        return () -> {
+            handler.run();
+            return CompletableFuture.completedFuture(null);
+        };
+    }
+
+    /**
+     * Follows a handled command until its future completes or times out
+     *
+     * @param key              the name of the command
+     * @param future           completes once the command has been handled
+     * @param handlerStartedAt the time the handler has been called
+     * @param deferral         the deferral of the interaction behind the command, null when it's not an interaction
+     */
+    private void track(String key, CompletableFuture<?> future, long handlerStartedAt, @Nullable ScheduledFuture<?> deferral) {
+        this.inFlight.incrementAndGet();
+
+        future.orTimeout(this.commandTimeout, TimeUnit.SECONDS).whenComplete((result, throwable) -> {
+            this.inFlight.decrementAndGet();
+            PipelineMetrics.record(PipelineMetrics.Stage.HANDLER, key, System.nanoTime() - handlerStartedAt);
+            if (deferral != null) deferral.cancel(false);
+
+            final Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+            if (cause instanceof TimeoutException) {
+                LOGGER.warn("{} did not complete within {} seconds.", key, this.commandTimeout);
+            } else if (cause != null) {
+                // TODO handle this? send the user error message?
+                LOGGER.error("Something went wrong trying to handle the command.", cause);
+            }
+        });
+    }
+
+    /**
+     * Schedules the checks and the handler of a command fairly across guilds, unless the command is rate limited
+     *
+     * @param command     the command that has been invoked
+     * @param ctx         the context of the invocation
+     * @param interaction the slash command event behind the invocation, null when it's not an interaction
+     * @param handler     calls the handler of the command, the future completes once the command has been handled
+     */
+    private void execute(IBaseCommand command, IBaseCommandContext ctx, @Nullable SlashCommandEvent interaction, Supplier<CompletableFuture<?>> handler) {
+        final CommandDescriptor descriptor = this.registry.getDescriptor(command);
+        if (!this.rateLimiter.tryAcquire(descriptor, ctx.getMember().getIdLong(), ctx.getChannel().getIdLong(), ctx.getGuild().getIdLong())) {
+            // Rate limited messages are ignored, replying to every one of them would only add to the spam
+            if (interaction != null) ctx.replyInstant("You're using this command too often, please slow down a bit.");
+            return;
+        }
+
+        final ScheduledFuture<?> deferral = interaction != null ? this.scheduleDeferral(interaction, ctx) : null;
+
+        final String key = command.getClass().getSimpleName();
+        final long submittedAt = System.nanoTime();
+
+        final boolean accepted = this.scheduler.submit(ctx.getGuild().getIdLong(), () -> {
+            final long startedAt = System.nanoTime();
+            PipelineMetrics.record(PipelineMetrics.Stage.SCHEDULER_WAIT, key, startedAt - submittedAt);
+
+            long checkedAt = startedAt;
+            CompletableFuture<?> future = null;
             try {
-                command.handle(ctx);
+                // The checks and the handler read the guild, member and user one by one, load them together up front
+                ctx.getSettings().prefetch(ctx.getMember());
+                final boolean cantContinue = cantContinue(command, ctx);
+                checkedAt = System.nanoTime();
+                PipelineMetrics.record(PipelineMetrics.Stage.CHECKS, key, checkedAt - startedAt);
+
+                // A refused command gives its tokens back, repeating it must not use up the limits of everyone else
+                if (cantContinue)
+                    this.rateLimiter.release(descriptor, ctx.getMember().getIdLong(), ctx.getChannel().getIdLong(), ctx.getGuild().getIdLong());
+                else
+                    future = handler.get();
             } catch (Exception exception) {
                 // TODO handle this? send the user error message?
                 LOGGER.error("Something went wrong trying to handle the command.", exception);
             }
 
-            return;
-        }
+            if (future == null) {
+                if (deferral != null) deferral.cancel(false);
+                return null;
+            }
 
-        IGenericCommand genericCommand = this.getGenericCommand(splitMessage[0].toLowerCase());
-        if (genericCommand == null) return;
-        IGenericCommandContext ctx = new GenericCommandContext(event, Hiromi.getConfig());
-        if (cantContinue(genericCommand, ctx)) return;
+            // The guild keeps its slot until the command completes or times out
+            this.track(key, future, checkedAt, deferral);
+            return future;
+        });
 
-        try {
-            genericCommand.handle(ctx);
-        } catch (Exception exception) {
-            // TODO handle this? send the user error message?
-            LOGGER.error("Something went wrong trying to handle the command.", exception);
+        if (accepted) return;
+
+        this.rateLimiter.release(descriptor, ctx.getMember().getIdLong(), ctx.getChannel().getIdLong(), ctx.getGuild().getIdLong());
+        if (interaction != null) {
+            deferral.cancel(false);
+            ctx.replyInstant("This server is sending too many commands at once, please try again in a moment.");
         }
     }
 
@@ -184,44 +355,32 @@ public class CommandManager {
         ISlashCommand slashCommand = this.getSlashCommand(event.getName());
         if (slashCommand != null) {
             ISlashCommandContext ctx = new SlashCommandContext(event, Hiromi.getConfig());
-            if (cantContinue(slashCommand, ctx)) return;
-
-            try {
-                slashCommand.handle(ctx);
-            } catch (Exception exception) {
-                // TODO handle this? send the user error message?
-                LOGGER.error("Something went wrong trying to handle the command.", exception);
-            }
+            this.execute(slashCommand, ctx, event, slashCommand instanceof IAsyncSlashCommand
+                    ? () -> ((IAsyncSlashCommand) slashCommand).handleAsync(ctx)
+                    : blocking(() -> slashCommand.handle(ctx)));
             return;
         }
 
         IGenericCommand genericCommand = this.getGenericCommand(event.getName());
         if (genericCommand == null) return;
         IGenericCommandContext ctx = new GenericCommandContext(event, Hiromi.getConfig());
-        if (cantContinue(genericCommand, ctx)) return;
-
-        try {
-            genericCommand.handle(ctx);
-        } catch (Exception exception) {
-            // TODO handle this? send the user error message?
-            LOGGER.error("Something went wrong trying to handle the command.", exception);
-        }
+        this.execute(genericCommand, ctx, event, genericCommand instanceof IAsyncGenericCommand
+                ? () -> ((IAsyncGenericCommand) genericCommand).handleAsync(ctx)
+                : blocking(() -> genericCommand.handle(ctx)));
     }
 
-    public void handle(ButtonClickEvent event, String[] data) {
-        String type = data[1];
-        String subtype = data[2];
-        ISlashCommand command = this.getSlashCommand(type);
+    public void handle(ButtonClickEvent event, ButtonId buttonId) {
+        final CommandDescriptor descriptor = this.registry.getDescriptor(buttonId.getCommandIndex());
+        if (descriptor == null) return;
 
-        if (command == null) return;
-        IButtonCommandContext ctx = new ButtonCommandContext(event, data, Hiromi.getConfig());
-        if (cantContinue(command, ctx)) return;
+        final IBaseCommand indexed = descriptor.getCommand();
+        if (!(indexed instanceof ISlashCommand)) return;
 
-        try {
-            command.handle(subtype, ctx);
-        } catch (Exception exception) {
-            // TODO handle this? send the user error message?
-            LOGGER.error("Something went wrong trying to handle the command.", exception);
-        }
+        final ISlashCommand command = (ISlashCommand) indexed;
+        final String subtype = buttonId.getSubtype();
+        IButtonCommandContext ctx = new ButtonCommandContext(event, buttonId.getArgs(), Hiromi.getConfig());
+        this.execute(command, ctx, null, command instanceof IAsyncSlashCommand
+                ? () -> ((IAsyncSlashCommand) command).handleAsync(subtype, ctx)
+                : blocking(() -> command.handle(subtype, ctx)));
     }
 }
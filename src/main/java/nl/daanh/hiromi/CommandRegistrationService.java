@@ -0,0 +1,237 @@
+package nl.daanh.hiromi;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.interactions.commands.build.CommandData;
+import net.dv8tion.jda.api.utils.data.DataArray;
+import net.dv8tion.jda.api.utils.data.DataObject;
+import nl.daanh.hiromi.database.IAsyncDatabaseManager;
+import nl.daanh.hiromi.database.IDatabaseManager;
+import nl.daanh.hiromi.models.commands.IGenericCommand;
+import nl.daanh.hiromi.models.commands.ISlashCommand;
+import nl.daanh.hiromi.models.configuration.IHiromiConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes slash command definitions to Discord only when they changed since the last push. A hash of the definitions is
+ * stored per guild and, for the global commands, on the bot user.
+ */
+public class CommandRegistrationService {
+    public static final String HASH_KEY = "commands_hash";
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommandRegistrationService.class);
+
+    private final CommandManager commandManager;
+    private final IHiromiConfig config;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor((r) -> {
+        final Thread thread = new Thread(r, "Hiromi-Command-Registration");
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
+    public CommandRegistrationService(CommandManager commandManager, IHiromiConfig config) {
+        this.commandManager = commandManager;
+        this.config = config;
+    }
+
+    /**
+     * Writes a definition with sorted keys, the order of the keys in a definition is not stable
+     */
+    private static void appendCanonical(StringBuilder builder, Object value) {
+        if (value instanceof DataObject) value = ((DataObject) value).toMap();
+        if (value instanceof DataArray) value = ((DataArray) value).toList();
+
+        if (value instanceof Map) {
+            builder.append('{');
+            new TreeMap<>((Map<?, ?>) value).forEach((key, item) -> {
+                appendCanonical(builder, String.valueOf(key));
+                builder.append(':');
+                appendCanonical(builder, item);
+                builder.append(',');
+            });
+            builder.append('}');
+        } else if (value instanceof Collection) {
+            builder.append('[');
+            for (final Object item : (Collection<?>) value) {
+                appendCanonical(builder, item);
+                builder.append(',');
+            }
+            builder.append(']');
+        } else if (value instanceof String) {
+            builder.append('"').append(((String) value).replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        } else {
+            builder.append(value);
+        }
+    }
+
+    /**
+     * Collects the definitions of every registered slash and generic command, sorted by name
+     *
+     * @return the current definitions and their hash
+     */
+    public Definitions getDefinitions() {
+        final TreeMap<String, CommandData> commands = new TreeMap<>();
+        for (final ISlashCommand command : this.commandManager.getSlashCommands()) {
+            final CommandData definition = command.getCommandDefinition();
+            commands.putIfAbsent(definition.getName(), definition);
+        }
+        for (final IGenericCommand command : this.commandManager.getGenericCommands()) {
+            final CommandData definition = command.getCommandDefinition();
+            commands.putIfAbsent(definition.getName(), definition);
+        }
+
+        final StringBuilder builder = new StringBuilder();
+        commands.values().forEach((definition) -> appendCanonical(builder, definition.toData()));
+
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(builder.toString().getBytes(StandardCharsets.UTF_8));
+            final StringBuilder hash = new StringBuilder();
+            for (final byte b : digest) {
+                hash.append(String.format("%02x", b));
+            }
+
+            return new Definitions(new ArrayList<>(commands.values()), hash.toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Pushes the definitions to a guild unless the stored hash says the guild already has them
+     *
+     * @param guild       the guild to push the commands to
+     * @param definitions the definitions to push
+     * @param force       whether to push even when the stored hash matches, the hash can't tell when the commands have
+     *                    been removed while the bot wasn't looking
+     * @return completes with true when the commands have been pushed, false when they were up to date
+     */
+    public CompletableFuture<Boolean> register(Guild guild, Definitions definitions, boolean force) {
+        final IAsyncDatabaseManager databaseManager = this.config.getAsyncDatabaseManager();
+        final CompletableFuture<String> storedHash = force ? CompletableFuture.completedFuture(null) : databaseManager.getKeyAsync(guild, HASH_KEY);
+
+        return storedHash.thenCompose((hash) -> {
+            if (definitions.getHash().equals(hash)) return CompletableFuture.completedFuture(false);
+
+            return guild.updateCommands().addCommands(definitions.getCommands()).submit()
+                    .thenCompose((commands) -> databaseManager.writeKeyAsync(guild, HASH_KEY, definitions.getHash()))
+                    .thenApply((ignored) -> true);
+        });
+    }
+
+    /**
+     * Pushes the definitions as global commands unless they already are
+     *
+     * @param jda         any shard
+     * @param definitions the definitions to push
+     * @return completes with true when the commands have been pushed, false when they were up to date
+     */
+    public CompletableFuture<Boolean> registerGlobal(JDA jda, Definitions definitions) {
+        final IDatabaseManager databaseManager = this.config.getDatabaseManager();
+        if (definitions.getHash().equals(databaseManager.getKey(jda.getSelfUser(), HASH_KEY)))
+            return CompletableFuture.completedFuture(false);
+
+        return jda.updateCommands().addCommands(definitions.getCommands()).submit().thenApplyAsync((commands) -> {
+            databaseManager.writeKey(jda.getSelfUser(), HASH_KEY, definitions.getHash());
+            return true;
+        }, this.executor);
+    }
+
+    /**
+     * Forgets the pushed hash of a guild, Discord removes the commands of a guild the bot has left
+     *
+     * @param guild the guild that has been left
+     */
+    public void forget(Guild guild) {
+        this.executor.execute(() -> this.config.getDatabaseManager().writeKey(guild, HASH_KEY, ""));
+    }
+
+    /**
+     * Brings the commands of a shard up to date. Guilds only get commands once they have been loaded with the load
+     * command, after that they are updated in batches that each wait for the previous one so the rate limits of the
+     * command endpoints are never flooded.
+     *
+     * @param jda the shard that became ready
+     */
+    public void rollout(JDA jda) {
+        final Definitions definitions = this.getDefinitions();
+        final Queue<Long> guildIds = new ArrayDeque<>();
+        jda.getGuildCache().forEach((guild) -> guildIds.add(guild.getIdLong()));
+
+        this.executor.execute(() -> {
+            final CompletableFuture<?> global = this.config.getGlobalCommandsEnabled() && jda.getShardInfo().getShardId() == 0
+                    ? this.registerGlobal(jda, definitions).whenComplete((updated, exception) -> {
+                        if (exception != null) LOGGER.error("Failed to update the global commands", exception);
+                        else if (updated) LOGGER.info("Updated the global commands to {}", definitions.getHash());
+                    })
+                    : CompletableFuture.completedFuture(null);
+
+            global.whenCompleteAsync((ignored, exception) -> this.rolloutBatch(jda, definitions, guildIds, 0), this.executor);
+        });
+    }
+
+    private void rolloutBatch(JDA jda, Definitions definitions, Queue<Long> guildIds, int updated) {
+        final List<CompletableFuture<Boolean>> batch = new ArrayList<>();
+        while (batch.size() < this.config.getCommandRolloutBatchSize() && !guildIds.isEmpty()) {
+            final Guild guild = jda.getGuildById(guildIds.poll());
+            final String hash = guild == null ? null : this.config.getDatabaseManager().getKey(guild, HASH_KEY);
+            // Guilds that never loaded the commands don't get them pushed
+            if (hash == null || hash.isEmpty() || hash.equals(definitions.getHash())) continue;
+
+            batch.add(this.register(guild, definitions, false).exceptionally((exception) -> {
+                LOGGER.warn("Failed to update the commands of guild {}", guild.getId(), exception);
+                return false;
+            }));
+        }
+
+        if (batch.isEmpty()) {
+            if (updated > 0)
+                LOGGER.info("Updated the commands of {} guilds on shard {}", updated, jda.getShardInfo().getShardId());
+            return;
+        }
+
+        CompletableFuture.allOf(batch.toArray(new CompletableFuture[0])).whenComplete((ignored, exception) -> {
+            final int count = updated + (int) batch.stream().filter(CompletableFuture::join).count();
+            this.executor.schedule(() -> this.rolloutBatch(jda, definitions, guildIds, count), this.config.getCommandRolloutInterval(), TimeUnit.MILLISECONDS);
+        });
+    }
+
+    /**
+     * The command definitions at one point in time
+     */
+    public static class Definitions {
+        private final List<CommandData> commands;
+        private final String hash;
+
+        private Definitions(List<CommandData> commands, String hash) {
+            this.commands = commands;
+            this.hash = hash;
+        }
+
+        public List<CommandData> getCommands() {
+            return this.commands;
+        }
+
+        /**
+         * @return the hex encoded SHA-256 of the canonical definitions
+         */
+        public String getHash() {
+            return this.hash;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package nl.daanh.hiromi;
+
+import nl.daanh.hiromi.commands.CommandIndex;
+import nl.daanh.hiromi.models.commands.CommandDescriptor;
+import nl.daanh.hiromi.models.commands.IBaseCommand;
+import nl.daanh.hiromi.models.commands.IGenericCommand;
+import nl.daanh.hiromi.models.commands.ISlashCommand;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of the registered commands. Nothing in it changes after it has been built, the command manager
+ * swaps in a new snapshot to enable or disable commands so readers never need a lock.
+ */
+public class CommandRegistry {
+    // Indexed like the command index, null for commands that are unavailable in this configuration
+    private final CommandDescriptor[] available;
+    private final boolean[] disabled;
+    // Indexed like the command index, null for commands that are unavailable or disabled
+    private final CommandDescriptor[] enabled;
+    // Every available command, disabled ones included so commands that are already running can still be described
+    private final IdentityHashMap<IBaseCommand, CommandDescriptor> descriptors = new IdentityHashMap<>();
+    private final Map<String, ISlashCommand> slashCommands;
+    private final Map<String, IGenericCommand> genericCommands;
+    private final List<ISlashCommand> slashCommandList;
+    private final List<IGenericCommand> genericCommandList;
+
+    /**
+     * @param available the descriptors of the command index, null for commands that are unavailable
+     * @param disabled  whether each command of the index has been disabled
+     * @throws RuntimeException when two enabled commands share an invoke
+     */
+    public CommandRegistry(CommandDescriptor[] available, boolean[] disabled) {
+        this.available = available.clone();
+        this.disabled = disabled.clone();
+        this.enabled = new CommandDescriptor[available.length];
+
+        final HashMap<String, ISlashCommand> slashCommands = new HashMap<>();
+        final HashMap<String, IGenericCommand> genericCommands = new HashMap<>();
+        final List<ISlashCommand> slashCommandList = new ArrayList<>();
+        final List<IGenericCommand> genericCommandList = new ArrayList<>();
+        for (int i = 0; i < available.length; i++) {
+            final CommandDescriptor descriptor = available[i];
+            if (descriptor == null) continue;
+
+            final IBaseCommand command = descriptor.getCommand();
+            this.descriptors.put(command, descriptor);
+            if (disabled[i]) continue;
+
+            this.enabled[i] = descriptor;
+            if (command instanceof ISlashCommand) {
+                final ISlashCommand slashCommand = (ISlashCommand) command;
+                if (slashCommands.put(slashCommand.getInvoke(), slashCommand) != null)
+                    throw new RuntimeException("Invoke has already been defined!");
+
+                slashCommandList.add(slashCommand);
+            }
+
+            if (command instanceof IGenericCommand) {
+                final IGenericCommand genericCommand = (IGenericCommand) command;
+                if (genericCommands.put(genericCommand.getCommandDefinition().getName(), genericCommand) != null)
+                    throw new RuntimeException("Invoke has already been defined!");
+
+                genericCommandList.add(genericCommand);
+            }
+        }
+
+        this.slashCommands = Collections.unmodifiableMap(slashCommands);
+        this.genericCommands = Collections.unmodifiableMap(genericCommands);
+        this.slashCommandList = Collections.unmodifiableList(slashCommandList);
+        this.genericCommandList = Collections.unmodifiableList(genericCommandList);
+    }
+
+    /**
+     * Creates a registry with a command enabled or disabled, this registry is left untouched
+     *
+     * @param index   the index of the command
+     * @param enabled whether the command should be enabled
+     * @return the new registry
+     */
+    public CommandRegistry withEnabled(int index, boolean enabled) {
+        final boolean[] disabled = this.disabled.clone();
+        disabled[index] = !enabled;
+        return new CommandRegistry(this.available, disabled);
+    }
+
+    /**
+     * Finds an available command by one of its message invokes, slash command invoke or generic command name
+     *
+     * @param name the name of the command
+     * @return the index of the command, -1 when there is no such command
+     */
+    public int indexOf(String name) {
+        final String invoke = name.toLowerCase();
+        final int index = CommandIndex.indexOf(invoke);
+        if (index != -1 && this.available[index] != null) return index;
+
+        for (int i = 0; i < this.available.length; i++) {
+            if (this.available[i] == null) continue;
+
+            final IBaseCommand command = this.available[i].getCommand();
+            if (command instanceof ISlashCommand && ((ISlashCommand) command).getInvoke().equals(invoke)) return i;
+            if (command instanceof IGenericCommand && ((IGenericCommand) command).getCommandDefinition().getName().equals(invoke))
+                return i;
+        }
+
+        return -1;
+    }
+
+    /**
+     * @param command the command to find
+     * @return the index of the command, -1 when it's unavailable or disabled
+     */
+    public int indexOf(IBaseCommand command) {
+        for (int i = 0; i < this.enabled.length; i++) {
+            if (this.enabled[i] != null && this.enabled[i].getCommand() == command) return i;
+        }
+
+        return -1;
+    }
+
+    public boolean isEnabled(int index) {
+        return this.enabled[index] != null;
+    }
+
+    /**
+     * @param index the index of the command
+     * @return the descriptor of the command, null when the index is out of range or the command is unavailable or disabled
+     */
+    @Nullable
+    public CommandDescriptor getDescriptor(int index) {
+        if (index < 0 || index >= this.enabled.length) return null;
+
+        return this.enabled[index];
+    }
+
+    /**
+     * @param command an available command
+     * @return the descriptor of the command, null when the command is unavailable
+     */
+    @Nullable
+    public CommandDescriptor getDescriptor(IBaseCommand command) {
+        return this.descriptors.get(command);
+    }
+
+    @Nullable
+    public IBaseCommand getIndexedCommand(String invoke) {
+        final CommandDescriptor descriptor = this.getDescriptor(CommandIndex.indexOf(invoke.toLowerCase()));
+        return descriptor != null ? descriptor.getCommand() : null;
+    }
+
+    @Nullable
+    public ISlashCommand getSlashCommand(String invoke) {
+        return this.slashCommands.get(invoke.toLowerCase());
+    }
+
+    @Nullable
+    public IGenericCommand getGenericCommand(String invoke) {
+        final IBaseCommand command = this.getIndexedCommand(invoke);
+        if (command instanceof IGenericCommand) return (IGenericCommand) command;
+
+        return this.genericCommands.get(invoke.toLowerCase());
+    }
+
+    public List<ISlashCommand> getSlashCommands() {
+        return this.slashCommandList;
+    }
+
+    public List<IGenericCommand> getGenericCommands() {
+        return this.genericCommandList;
+    }
+}
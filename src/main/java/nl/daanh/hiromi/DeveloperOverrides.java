@@ -3,12 +3,14 @@ package nl.daanh.hiromi;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
 import nl.daanh.hiromi.database.IDatabaseManager;
+import nl.daanh.hiromi.events.GuildFairScheduler;
+import nl.daanh.hiromi.models.commands.CommandInput;
 import nl.daanh.hiromi.models.configuration.IHiromiConfig;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 public class DeveloperOverrides {
     public static void onGuildMessageReceived(@NotNull GuildMessageReceivedEvent event) {
@@ -18,10 +20,11 @@ public class DeveloperOverrides {
         final String prefix = config.getGlobalPrefix();
         final Member member = event.getMember();
 
-        final String[] splitMessage = event.getMessage().getContentRaw().replaceFirst("(?i)" + Pattern.quote(prefix), "").split("\\s+");
-        final List<String> args = Arrays.asList(splitMessage).subList(1, splitMessage.length);
+        final CommandInput input = CommandInput.parse(event.getMessage().getContentRaw(), prefix);
+        if (input == null) return;
+        final List<String> args = input.getArgs();
 
-        switch (splitMessage[0].toLowerCase()) {
+        switch (input.getInvoke()) {
             case "shutdown":
                 if (args.size() > 0) {
                     int shardId = Integer.parseInt(args.get(0));
@@ -37,6 +40,41 @@ public class DeveloperOverrides {
                     Hiromi.getEventManager().shutdown();
                 }
                 break;
+            case "scheduler":
+                final GuildFairScheduler scheduler = Hiromi.getEventManager().getCommandManager().getScheduler();
+                final String throttled = scheduler.getThrottleCounts().entrySet().stream()
+                        .sorted(Map.Entry.<Long, Long>comparingByValue().reversed())
+                        .limit(10)
+                        .map(entry -> String.format("%s: %s", entry.getKey(), entry.getValue()))
+                        .collect(Collectors.joining("\n"));
+                final String queued = scheduler.getQueueDepths().entrySet().stream()
+                        .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed())
+                        .limit(10)
+                        .map(entry -> String.format("%s: %s", entry.getKey(), entry.getValue()))
+                        .collect(Collectors.joining("\n"));
+
+                event.getChannel().sendMessage(String.format("Running commands: %s\nIn flight commands: %s\nMost throttled guilds:\n%s\nBusiest guilds:\n%s",
+                        scheduler.getRunning(),
+                        Hiromi.getEventManager().getCommandManager().getInFlight(),
+                        throttled.isEmpty() ? "none" : throttled,
+                        queued.isEmpty() ? "none" : queued
+                )).queue();
+                break;
+            case "enable":
+            case "disable":
+                if (args.isEmpty()) {
+                    event.getChannel().sendMessage(String.format("Usage: %s%s <command>", prefix, input.getInvoke())).queue();
+                    return;
+                }
+
+                final boolean enabled = input.getInvoke().equals("enable");
+                if (!Hiromi.getEventManager().getCommandManager().setEnabled(args.get(0), enabled)) {
+                    event.getChannel().sendMessage(String.format("The command %s doesn't exist.", args.get(0))).queue();
+                    return;
+                }
+
+                event.getChannel().sendMessage(String.format("The command %s has been %s.", args.get(0), enabled ? "enabled" : "disabled")).queue();
+                break;
             case "givemoney":
                 event.getChannel().sendMessage("Giving user money").queue();
                 databaseManager.setCashAmount(member, databaseManager.getCashAmount(member) + 500);
@@ -1,11 +1,22 @@
 package nl.daanh.hiromi;
 
 import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.guild.GenericGuildEvent;
+import net.dv8tion.jda.api.events.interaction.GenericInteractionCreateEvent;
+import net.dv8tion.jda.api.events.message.GenericMessageEvent;
 import net.dv8tion.jda.api.hooks.EventListener;
 import net.dv8tion.jda.api.hooks.IEventManager;
 import net.dv8tion.jda.api.sharding.ShardManager;
+import nl.daanh.hiromi.events.EventLane;
+import nl.daanh.hiromi.events.EventPriority;
+import nl.daanh.hiromi.events.EventRoutingTable;
+import nl.daanh.hiromi.events.WorkerPool;
+import nl.daanh.hiromi.listeners.CommandRegistrationListener;
 import nl.daanh.hiromi.listeners.GuildMessageListener;
+import nl.daanh.hiromi.listeners.PermissionListener;
+import nl.daanh.hiromi.metrics.PipelineMetrics;
 import nl.daanh.hiromi.listeners.ReadyShutdownListener;
 import nl.daanh.hiromi.listeners.SlashCommandListener;
 import nl.daanh.hiromi.models.configuration.IHiromiConfig;
@@ -16,26 +27,41 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 public class EventManager implements IEventManager {
     private static final Logger LOGGER = LoggerFactory.getLogger(EventManager.class);
 
     private final List<EventListener> listeners = new ArrayList<>();
-
-    private final ExecutorService eventExecutor = Executors.newSingleThreadExecutor((r) -> {
-        final Thread thread = new Thread(r, "Hiromi-Event-Thread");
-        thread.setDaemon(true);
-
-        return thread;
-    });
+    private final WorkerPool workerPool;
+    private final EventLane[] lanes;
+    private final EventRoutingTable routingTable;
+    private final CommandManager commandManager;
+    private final ConcurrentHashMap<Class<?>, LongAdder> droppedEvents = new ConcurrentHashMap<>();
 
     public EventManager(IHiromiConfig config) {
-        final CommandManager commandManager = new CommandManager(config);
-        this.listeners.add(new ReadyShutdownListener());
-        this.listeners.add(new GuildMessageListener(commandManager));
-        this.listeners.add(new SlashCommandListener(commandManager));
+        this.workerPool = new WorkerPool(config.getWorkerThreads(), config.getMaxWorkerThreads());
+        this.lanes = new EventLane[Math.max(1, config.getEventLaneCount())];
+        for (int i = 0; i < this.lanes.length; i++) {
+            this.lanes[i] = new EventLane(i,
+                    this.workerPool,
+                    config.getEventQueueCapacity(),
+                    config.getEventQueueLowWatermark(),
+                    config.getEventQueueHighWatermark(),
+                    config.getEventInteractionCapacity()
+            );
+        }
+
+        this.commandManager = new CommandManager(config, this.workerPool);
+        this.listeners.add(new ReadyShutdownListener(this.workerPool));
+        this.listeners.add(new GuildMessageListener(this.workerPool, this.commandManager));
+        this.listeners.add(new SlashCommandListener(this.workerPool, this.commandManager));
+        this.listeners.add(new CommandRegistrationListener(this.workerPool, this.commandManager.getRegistrationService()));
+        this.listeners.add(new PermissionListener(this.workerPool, this.commandManager.getPermissionCache()));
+        this.routingTable = new EventRoutingTable(this.listeners);
     }
 
     @Override
@@ -48,11 +74,46 @@ public class EventManager implements IEventManager {
         throw new IllegalArgumentException();
     }
 
+    /**
+     * Events are partitioned by the guild they belong to, events without a guild fall back to their shard
+     *
+     * @param event the event to partition
+     * @return the id the lane of the event is derived from
+     */
+    private static long getPartitionKey(GenericEvent event) {
+        if (event instanceof GenericGuildEvent)
+            return ((GenericGuildEvent) event).getGuild().getIdLong();
+
+        if (event instanceof GenericInteractionCreateEvent) {
+            final Guild guild = ((GenericInteractionCreateEvent) event).getGuild();
+            if (guild != null) return guild.getIdLong();
+        }
+
+        if (event instanceof GenericMessageEvent && ((GenericMessageEvent) event).isFromGuild())
+            return ((GenericMessageEvent) event).getGuild().getIdLong();
+
+        return event.getJDA().getShardInfo().getShardId();
+    }
+
+    private EventLane getLane(GenericEvent event) {
+        // Snowflakes share most of their low bits so spread them before picking a lane
+        final long hash = getPartitionKey(event) * 0x9E3779B97F4A7C15L;
+        return this.lanes[Math.floorMod((int) (hash >>> 32), this.lanes.length)];
+    }
+
     @Override
     public void handle(@NotNull GenericEvent event) {
-//        final JDA.ShardInfo shardInfo = event.getJDA().getShardInfo();
-        for (final EventListener listener : this.listeners) {
-            eventExecutor.submit(() -> {
+        final EventListener[] listeners = this.routingTable.getListeners(event.getClass());
+        if (listeners.length == 0) return;
+
+        final String key = event.getClass().getSimpleName();
+        final long submittedAt = System.nanoTime();
+
+        final boolean accepted = this.getLane(event).submit(() -> {
+            final long startedAt = System.nanoTime();
+            PipelineMetrics.record(PipelineMetrics.Stage.QUEUE_WAIT, key, startedAt - submittedAt);
+
+            for (final EventListener listener : listeners) {
                 try {
                     listener.onEvent(event);
                 } catch (Throwable thr) {
@@ -62,8 +123,54 @@ public class EventManager implements IEventManager {
                             thr.getMessage()
                     ), thr);
                 }
+            }
+
+            PipelineMetrics.record(PipelineMetrics.Stage.DISPATCH, key, System.nanoTime() - startedAt);
+        }, EventPriority.of(event));
+
+        if (accepted) return;
+
+        this.countDroppedEvent(event);
+        // Interactions fail visibly when they aren't acknowledged, tell the user instead
+        if (event instanceof GenericInteractionCreateEvent)
+            ((GenericInteractionCreateEvent) event).reply("I'm too busy right now, please try again in a moment.").setEphemeral(true).queue();
+    }
+
+    private void countDroppedEvent(GenericEvent event) {
+        LongAdder counter = this.droppedEvents.get(event.getClass());
+        if (counter == null) {
+            counter = this.droppedEvents.computeIfAbsent(event.getClass(), (c) -> {
+                LOGGER.warn("Started shedding events of type {} due to overload.", c.getSimpleName());
+                return new LongAdder();
             });
         }
+
+        counter.increment();
+    }
+
+    /**
+     * The amount of events that have been shed since startup
+     *
+     * @return the dropped event count per event type
+     */
+    public Map<String, Long> getDroppedEvents() {
+        final Map<String, Long> droppedEvents = new TreeMap<>();
+        this.droppedEvents.forEach((type, counter) -> droppedEvents.put(type.getSimpleName(), counter.sum()));
+        return droppedEvents;
+    }
+
+    /**
+     * The amount of queued events on every lane
+     *
+     * @return the queue depth per lane
+     */
+    public int[] getQueueDepths() {
+        final int[] depths = new int[this.lanes.length];
+        for (int i = 0; i < this.lanes.length; i++) {
+            depths[i] = this.lanes[i].getDepth();
+        }
+
+        return depths;
     }
 
     @NotNull
@@ -72,6 +179,14 @@ public class EventManager implements IEventManager {
         return Collections.unmodifiableList(this.listeners);
     }
 
+    public CommandManager getCommandManager() {
+        return this.commandManager;
+    }
+
+    public WorkerPool getWorkerPool() {
+        return this.workerPool;
+    }
+
     public void shutdown() {
         final ShardManager shardManager = Hiromi.getShardManager();
         LOGGER.warn("Shutting down by request!");
@@ -9,6 +9,7 @@ import net.dv8tion.jda.api.sharding.ShardManager;
 import net.dv8tion.jda.api.utils.ChunkingFilter;
 import net.dv8tion.jda.api.utils.MemberCachePolicy;
 import net.dv8tion.jda.api.utils.cache.CacheFlag;
+import nl.daanh.hiromi.metrics.PipelineMetrics;
 import nl.daanh.hiromi.models.configuration.BaseHiromiConfig;
 import nl.daanh.hiromi.models.configuration.HiromiConfigDotEnv;
 import nl.daanh.hiromi.models.configuration.IHiromiConfig;
@@ -68,6 +69,8 @@ public class Hiromi {
         WebUtils.setApiToken(config.getApiToken());
         String implementationVersion = this.getClass().getPackage().getImplementationVersion();
         WebUtils.setUserAgent(String.format("Hiromi/%s", implementationVersion != null ? implementationVersion : "DEVELOPMENT"));
+
+        PipelineMetrics.startReporting(config.getMetricsLogInterval());
     }
 
     public static void main(String[] args) {
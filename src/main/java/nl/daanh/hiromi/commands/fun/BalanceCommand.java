@@ -3,30 +3,35 @@ package nl.daanh.hiromi.commands.fun;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.interactions.commands.build.CommandData;
-import nl.daanh.hiromi.database.IDatabaseManager;
+import nl.daanh.hiromi.database.IAsyncDatabaseManager;
 import nl.daanh.hiromi.models.commandcontext.IGenericCommandContext;
-import nl.daanh.hiromi.models.commands.IGenericCommand;
+import nl.daanh.hiromi.models.commands.IAsyncGenericCommand;
 import nl.daanh.hiromi.models.commands.annotations.CommandCategory;
 import nl.daanh.hiromi.models.commands.annotations.CommandInvoke;
+import nl.daanh.hiromi.models.commands.annotations.RateLimit;
 import nl.daanh.hiromi.models.commands.annotations.SelfPermission;
 import nl.daanh.hiromi.utils.MessageFormatting;
 
+import java.util.concurrent.CompletableFuture;
+
 @CommandInvoke("bal")
 @CommandInvoke("balance")
 @CommandCategory(CommandCategory.CATEGORY.FUN)
+@RateLimit(user = 3, channel = 10, seconds = 10)
 @SelfPermission(Permission.MESSAGE_WRITE)
-public class BalanceCommand implements IGenericCommand {
+public class BalanceCommand implements IAsyncGenericCommand {
     @Override
-    public void handle(IGenericCommandContext ctx) {
+    public CompletableFuture<?> handleAsync(IGenericCommandContext ctx) {
         Member member = ctx.getMember();
-        IDatabaseManager databaseManager = ctx.getConfiguration().getDatabaseManager();
+        IAsyncDatabaseManager databaseManager = ctx.getConfiguration().getAsyncDatabaseManager();
 
-        long bankAmount = databaseManager.getBankAmount(member);
-        long cashAmount = databaseManager.getCashAmount(member);
+        CompletableFuture<Long> bankAmount = databaseManager.getBankAmountAsync(member);
+        CompletableFuture<Long> cashAmount = databaseManager.getCashAmountAsync(member);
+        CompletableFuture<String> currency = databaseManager.getCurrencyAsync(ctx.getGuild());
 
-        ctx.reply(String.format("Your current bank account balance is: ``%s`` and your current wallet balance is: ``%s``",
-                MessageFormatting.currencyFormat(ctx, bankAmount),
-                MessageFormatting.currencyFormat(ctx, cashAmount)));
+        return CompletableFuture.allOf(bankAmount, cashAmount, currency).thenCompose((ignored) -> ctx.replyAsync(String.format("Your current bank account balance is: ``%s`` and your current wallet balance is: ``%s``",
+                MessageFormatting.currencyFormat(currency.join(), bankAmount.join()),
+                MessageFormatting.currencyFormat(currency.join(), cashAmount.join()))));
     }
 
     @Override
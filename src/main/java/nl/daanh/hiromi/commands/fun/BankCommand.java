@@ -16,6 +16,7 @@ import nl.daanh.hiromi.models.commands.ICommand;
 import nl.daanh.hiromi.models.commands.ISlashCommand;
 import nl.daanh.hiromi.models.commands.annotations.CommandCategory;
 import nl.daanh.hiromi.models.commands.annotations.CommandInvoke;
+import nl.daanh.hiromi.models.commands.annotations.RateLimit;
 import nl.daanh.hiromi.models.commands.annotations.SelfPermission;
 import nl.daanh.hiromi.utils.MessageFormatting;
 import org.slf4j.Logger;
@@ -25,6 +26,7 @@ import java.util.List;
 
 @CommandInvoke("bank")
 @CommandCategory(CommandCategory.CATEGORY.FUN)
+@RateLimit(user = 3, channel = 10, seconds = 10)
 @SelfPermission(Permission.MESSAGE_WRITE)
 public class BankCommand implements ICommand, ISlashCommand {
     Logger LOGGER = LoggerFactory.getLogger(BankCommand.class);
@@ -34,7 +36,7 @@ public class BankCommand implements ICommand, ISlashCommand {
         List<String> args = ctx.getArgs();
         Guild guild = ctx.getGuild();
         Member member = ctx.getMember();
-        IDatabaseManager databaseManager = ctx.getConfiguration().getDatabaseManager();
+        IDatabaseManager databaseManager = ctx.getSettings();
 
         if (args.size() == 2) {
             try {
@@ -92,11 +94,11 @@ public class BankCommand implements ICommand, ISlashCommand {
     public void handle(ISlashCommandContext ctx) {
         SlashCommandEvent event = ctx.getEvent();
         Member member = ctx.getMember();
-        IDatabaseManager databaseManager = ctx.getConfiguration().getDatabaseManager();
+        IDatabaseManager databaseManager = ctx.getSettings();
 
         final String subcommandName = event.getSubcommandName();
         if (subcommandName == null) {
-            ctx.reply("Please specify if you want to take money from you bank account or put money in it.").setEphemeral(true).queue();
+            ctx.reply("Please specify if you want to take money from you bank account or put money in it.", true).queue();
             return;
         }
 
@@ -115,7 +117,7 @@ public class BankCommand implements ICommand, ISlashCommand {
             switch (subcommandName.toLowerCase()) {
                 case "take":
                     if (amount > bankAmount || amount <= 0) {
-                        ctx.reply("I'm afraid that you don't have that much money stored in your bank account.").setEphemeral(true).queue();
+                        ctx.reply("I'm afraid that you don't have that much money stored in your bank account.", true).queue();
                         return;
                     }
 
@@ -129,11 +131,11 @@ public class BankCommand implements ICommand, ISlashCommand {
                                     MessageFormatting.currencyFormat(ctx, amount),
                                     MessageFormatting.currencyFormat(ctx, cashAmount),
                                     MessageFormatting.currencyFormat(ctx, bankAmount)
-                            )).setEphemeral(true).queue();
+                            ), true).queue();
                     break;
                 case "put":
                     if (amount > cashAmount || amount <= 0) {
-                        ctx.reply("I'm afraid that you don't have that much money in your wallet.").setEphemeral(true).queue();
+                        ctx.reply("I'm afraid that you don't have that much money in your wallet.", true).queue();
                         return;
                     }
 
@@ -147,13 +149,13 @@ public class BankCommand implements ICommand, ISlashCommand {
                                             MessageFormatting.currencyFormat(ctx, amount),
                                             MessageFormatting.currencyFormat(ctx, bankAmount),
                                             MessageFormatting.currencyFormat(ctx, cashAmount)
-                                    )).setEphemeral(true)
+                                    ), true)
                             .queue();
                     break;
             }
         } catch (Exception exception) {
             LOGGER.error("Something went wrong parsing a value", exception);
-            ctx.reply("Please specify a valid numeric amount.").setEphemeral(true).queue();
+            ctx.reply("Please specify a valid numeric amount.", true).queue();
         }
     }
 
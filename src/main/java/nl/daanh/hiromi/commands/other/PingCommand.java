@@ -22,7 +22,7 @@ public class PingCommand implements ISlashCommand, ICommand {
         SlashCommandEvent event = ctx.getEvent();
 
         long time = System.currentTimeMillis();
-        ctx.reply("Pong!").setEphemeral(true)
+        ctx.reply("Pong!", true)
                 .flatMap(v -> event.getHook().editOriginalFormat("Pong: %d ms", System.currentTimeMillis() - time)
                 ).queue();
     }
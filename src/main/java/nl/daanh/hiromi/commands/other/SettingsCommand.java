@@ -188,7 +188,7 @@ public class SettingsCommand implements ICommand, ISlashCommand {
     public void handle(ICommandContext ctx) {
         final GuildMessageReceivedEvent event = ctx.getEvent();
         final Guild guild = ctx.getGuild();
-        final IDatabaseManager databaseManager = ctx.getConfiguration().getDatabaseManager();
+        final IDatabaseManager databaseManager = ctx.getSettings();
         final List<String> args = ctx.getArgs();
         final String subcommandName = args.size() > 0 ? args.get(0) : null;
 
@@ -255,7 +255,7 @@ public class SettingsCommand implements ICommand, ISlashCommand {
         final SlashCommandEvent event = ctx.getEvent();
         final Member member = ctx.getMember();
         final Guild guild = ctx.getGuild();
-        final IDatabaseManager databaseManager = ctx.getConfiguration().getDatabaseManager();
+        final IDatabaseManager databaseManager = ctx.getSettings();
         final String subcommandName = event.getSubcommandName();
         final OptionMapping valueOption = event.getOption("value");
 
@@ -268,11 +268,11 @@ public class SettingsCommand implements ICommand, ISlashCommand {
 
         if (valueOption == null) {
             // Send current value?
-            ctx.reply(get(guild, databaseManager, setting, subcommandName.toLowerCase())).setEphemeral(true).queue();
+            ctx.reply(get(guild, databaseManager, setting, subcommandName.toLowerCase()), true).queue();
             return;
         }
 
-        ctx.reply(set(guild, databaseManager, setting, subcommandName.toLowerCase(), valueOption)).setEphemeral(true).queue();
+        ctx.reply(set(guild, databaseManager, setting, subcommandName.toLowerCase(), valueOption), true).queue();
     }
 
     @Override
@@ -3,6 +3,8 @@ package nl.daanh.hiromi.commands.other;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.interactions.commands.build.CommandData;
 import net.dv8tion.jda.api.sharding.ShardManager;
+import nl.daanh.hiromi.database.CachingDatabaseManager;
+import nl.daanh.hiromi.metrics.PipelineMetrics;
 import nl.daanh.hiromi.models.commandcontext.IBaseCommandContext;
 import nl.daanh.hiromi.models.commandcontext.IGenericCommandContext;
 import nl.daanh.hiromi.models.commands.IGenericCommand;
@@ -28,6 +30,14 @@ public class StatusCommand implements IGenericCommand {
         stringBuilder.append("I have been running for ").append(uptimeInDays).append(" days!\n");
         stringBuilder.append("We are on shard ").append(ctx.getJDA().getShardInfo().getShardId()).append(" together with ").append(ctx.getJDA().getGuildCache().size()).append(" others!\n");
         stringBuilder.append("\n");
+        stringBuilder.append("Latencies of the last ").append(PipelineMetrics.getIntervalSeconds()).append(" seconds:\n");
+        for (PipelineMetrics.Stage stage : PipelineMetrics.Stage.values()) {
+            stringBuilder.append(stage.getName()).append(": ").append(PipelineMetrics.formatPercentiles(PipelineMetrics.getTotal(stage))).append("\n");
+        }
+        final CachingDatabaseManager databaseCache = ctx.getConfiguration().getDatabaseCache();
+        if (databaseCache != null)
+            stringBuilder.append("Database cache: ").append(databaseCache.getCache().formatStats()).append("\n");
+        stringBuilder.append("\n");
         stringBuilder.append("Thanks for using our bot. Greetings Hiromi team. :heart:\n");
         stringBuilder.append("Visit us on Github: ").append(ctx.getConfiguration().getGithubLink());
 
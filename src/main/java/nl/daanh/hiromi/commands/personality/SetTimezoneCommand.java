@@ -38,7 +38,7 @@ public class SetTimezoneCommand implements ICommand, ISlashCommand {
     @Override
     public void handle(ICommandContext ctx) {
         Member member = ctx.getMember();
-        IDatabaseManager databaseManager = ctx.getConfiguration().getDatabaseManager();
+        IDatabaseManager databaseManager = ctx.getSettings();
         List<String> args = ctx.getArgs();
 
         if (args.isEmpty()) {
@@ -61,12 +61,11 @@ public class SetTimezoneCommand implements ICommand, ISlashCommand {
     public void handle(ISlashCommandContext ctx) {
         SlashCommandEvent event = ctx.getEvent();
         Member member = ctx.getMember();
-        IDatabaseManager databaseManager = ctx.getConfiguration().getDatabaseManager();
+        IDatabaseManager databaseManager = ctx.getSettings();
         OptionMapping timezoneOption = event.getOption("timezone");
 
         if (timezoneOption == null) {
-            ctx.reply("Please specify a timezone. Examples: ``Europe/Amsterdam``, ``America/New_York``, ``UTC``")
-                    .setEphemeral(true)
+            ctx.reply("Please specify a timezone. Examples: ``Europe/Amsterdam``, ``America/New_York``, ``UTC``", true)
                     .queue();
             return;
         }
@@ -74,15 +73,13 @@ public class SetTimezoneCommand implements ICommand, ISlashCommand {
         TimeZone zoneId = parseTimezone(timezoneOption.getAsString());
 
         if (zoneId == null) {
-            ctx.reply("Timezone invalid or not found. Please try a different input. Examples: ``Europe/Amsterdam``, ``America/New_York``, ``UTC``")
-                    .setEphemeral(true)
+            ctx.reply("Timezone invalid or not found. Please try a different input. Examples: ``Europe/Amsterdam``, ``America/New_York``, ``UTC``", true)
                     .queue();
             return;
         }
 
         databaseManager.setTimezone(member.getUser(), zoneId);
-        ctx.reply(String.format("Your timezone has been changed to ``%s``", timezoneOption.getAsString()))
-                .setEphemeral(true)
+        ctx.reply(String.format("Your timezone has been changed to ``%s``", timezoneOption.getAsString()), true)
                 .queue();
     }
 
@@ -29,7 +29,7 @@ public class TimezoneCommand implements ICommand, ISlashCommand {
     @Override
     public void handle(ICommandContext ctx) {
         Member member = ctx.getMember();
-        IDatabaseManager databaseManager = ctx.getConfiguration().getDatabaseManager();
+        IDatabaseManager databaseManager = ctx.getSettings();
         List<String> args = ctx.getArgs();
         List<Member> mentionedMembers = ctx.getMessage().getMentionedMembers();
 
@@ -99,14 +99,13 @@ public class TimezoneCommand implements ICommand, ISlashCommand {
     public void handle(ISlashCommandContext ctx) {
         SlashCommandEvent event = ctx.getEvent();
         Member member = ctx.getMember();
-        IDatabaseManager databaseManager = ctx.getConfiguration().getDatabaseManager();
+        IDatabaseManager databaseManager = ctx.getSettings();
         OptionMapping userMention = event.getOption("member");
 
         if (userMention == null) {
             TimeZone timezone = databaseManager.getTimezone(member.getUser());
             if (timezone == null) {
-                ctx.reply("You don't have your timezone set. Please use /settimezone <timezone> to set your timezone")
-                        .setEphemeral(true)
+                ctx.reply("You don't have your timezone set. Please use /settimezone <timezone> to set your timezone", true)
                         .queue();
                 return;
             }
@@ -114,13 +113,13 @@ public class TimezoneCommand implements ICommand, ISlashCommand {
             ctx.reply(String.format("Your timezone is set to ``%s``\nYour date / time is: ``%s``",
                     MessageFormatting.parseTimezone(timezone),
                     MessageFormatting.currentDateTimeFormatted(timezone)
-            )).setEphemeral(true).queue();
+            ), true).queue();
             return;
         }
 
 
         if (userMention.getAsMember() == null) {
-            ctx.reply("Please specify a valid user").setEphemeral(true).queue();
+            ctx.reply("Please specify a valid user", true).queue();
             return;
         }
 
@@ -128,8 +127,7 @@ public class TimezoneCommand implements ICommand, ISlashCommand {
 
         TimeZone mentionedTimezone = databaseManager.getTimezone(mentionedMember.getUser());
         if (mentionedTimezone == null) {
-            ctx.reply("It looks like your friend hasn't set their timezone set. Please tell them to use /settimezone <timezone> to set their timezone")
-                    .setEphemeral(true)
+            ctx.reply("It looks like your friend hasn't set their timezone set. Please tell them to use /settimezone <timezone> to set their timezone", true)
                     .queue();
             return;
         }
@@ -141,7 +139,7 @@ public class TimezoneCommand implements ICommand, ISlashCommand {
                     mentionedMember.getEffectiveName(),
                     MessageFormatting.parseTimezone(mentionedTimezone),
                     MessageFormatting.currentDateTimeFormatted(mentionedTimezone)
-            )).setEphemeral(true).queue();
+            ), true).queue();
             return;
         }
 
@@ -161,7 +159,7 @@ public class TimezoneCommand implements ICommand, ISlashCommand {
                         Math.abs(mentionedTime.getMinute() - time.getMinute())
                 ),
                 isBehind ? "behind" : isAfter ? "ahead" : "ahead or behind"
-        )).setEphemeral(true).queue();
+        ), true).queue();
     }
 
     @Override
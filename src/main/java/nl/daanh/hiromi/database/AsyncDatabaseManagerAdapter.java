@@ -0,0 +1,51 @@
+package nl.daanh.hiromi.database;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.User;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the calls of a blocking data source on virtual threads, so the threads waiting on it are never worker threads
+ */
+public class AsyncDatabaseManagerAdapter implements IAsyncDatabaseManager {
+    private final IDatabaseManager databaseManager;
+    private final Executor executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("Hiromi-Database-", 0).factory());
+
+    public AsyncDatabaseManagerAdapter(IDatabaseManager databaseManager) {
+        this.databaseManager = databaseManager;
+    }
+
+    @Override
+    public CompletableFuture<String> getKeyAsync(Guild guild, String key) {
+        return CompletableFuture.supplyAsync(() -> this.databaseManager.getKey(guild, key), this.executor);
+    }
+
+    @Override
+    public CompletableFuture<String> getKeyAsync(Member member, String key) {
+        return CompletableFuture.supplyAsync(() -> this.databaseManager.getKey(member, key), this.executor);
+    }
+
+    @Override
+    public CompletableFuture<String> getKeyAsync(User user, String key) {
+        return CompletableFuture.supplyAsync(() -> this.databaseManager.getKey(user, key), this.executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> writeKeyAsync(Guild guild, String key, String value) {
+        return CompletableFuture.runAsync(() -> this.databaseManager.writeKey(guild, key, value), this.executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> writeKeyAsync(Member member, String key, String value) {
+        return CompletableFuture.runAsync(() -> this.databaseManager.writeKey(member, key, value), this.executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> writeKeyAsync(User user, String key, String value) {
+        return CompletableFuture.runAsync(() -> this.databaseManager.writeKey(user, key, value), this.executor);
+    }
+}
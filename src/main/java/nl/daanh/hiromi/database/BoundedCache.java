@@ -0,0 +1,296 @@
+package nl.daanh.hiromi.database;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A size bounded cache with W-TinyLFU eviction. New entries go through a small LRU window, an entry that falls out of
+ * the window only replaces the oldest entry of the main segment when it has been used more often according to a
+ * count-min sketch. The main segment is split in a probation and a protected LRU, entries that are used again while on
+ * probation are protected.
+ * <p>
+ * The cache is split in stripes that each hold their own policy behind their own lock.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public class BoundedCache<K, V> {
+    private static final int STRIPES = 16;
+
+    private final Stripe<K, V>[] stripes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public BoundedCache(int maximumSize) {
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new Stripe<>(Math.max(3, maximumSize / STRIPES), this);
+        }
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x45D9F3B;
+        return hash ^ hash >>> 16;
+    }
+
+    private Stripe<K, V> getStripe(Object key) {
+        return this.stripes[spread(key.hashCode()) & (STRIPES - 1)];
+    }
+
+    /**
+     * Gets a cached value or loads it, the loader runs without holding a lock
+     *
+     * @param key       the key of the value
+     * @param ttlMillis how long a loaded value stays valid
+     * @param loader    loads the value on a miss
+     * @return the value
+     */
+    public V get(K key, long ttlMillis, Function<K, V> loader) {
+        final Stripe<K, V> stripe = this.getStripe(key);
+        final long invalidations;
+        synchronized (stripe) {
+            final Node<V> node = stripe.get(key);
+            if (node != null) {
+                this.hits.increment();
+                return node.value;
+            }
+
+            invalidations = stripe.invalidations;
+        }
+
+        this.misses.increment();
+        final V value = loader.apply(key);
+        synchronized (stripe) {
+            // A value loaded while the key was invalidated may already be stale, it's returned but never cached
+            if (stripe.invalidations == invalidations)
+                stripe.put(key, new Node<>(value, System.currentTimeMillis() + ttlMillis));
+        }
+
+        return value;
+    }
+
+    /**
+     * Removes a value so the next read loads it again
+     *
+     * @param key the key of the value
+     */
+    public void invalidate(K key) {
+        final Stripe<K, V> stripe = this.getStripe(key);
+        synchronized (stripe) {
+            stripe.invalidations++;
+            stripe.remove(key);
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Stripe<K, V> stripe : this.stripes) {
+            synchronized (stripe) {
+                size += stripe.window.size() + stripe.probation.size() + stripe.protectedSegment.size();
+            }
+        }
+
+        return size;
+    }
+
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    public long getEvictions() {
+        return this.evictions.sum();
+    }
+
+    public long getExpirations() {
+        return this.expirations.sum();
+    }
+
+    /**
+     * @return the hits, misses, evictions and expirations on a single line
+     */
+    public String formatStats() {
+        final long hits = this.getHits();
+        final long requests = hits + this.getMisses();
+        return String.format("size=%d hits=%d misses=%d hit rate=%.1f%% evictions=%d expirations=%d",
+                this.size(), hits, this.getMisses(), requests == 0 ? 0.0 : hits * 100.0 / requests, this.getEvictions(), this.getExpirations());
+    }
+
+    private static class Node<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Node(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static class Stripe<K, V> {
+        private final BoundedCache<K, V> cache;
+        private final FrequencySketch sketch;
+        // Access ordered, the first entry of every segment is the least recently used
+        private final LinkedHashMap<K, Node<V>> window = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<K, Node<V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<K, Node<V>> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+        private final int windowSize;
+        private final int mainSize;
+        private final int protectedSize;
+        private long invalidations;
+
+        private Stripe(int maximumSize, BoundedCache<K, V> cache) {
+            this.cache = cache;
+            this.sketch = new FrequencySketch(maximumSize);
+            this.windowSize = Math.max(1, maximumSize / 100);
+            this.mainSize = maximumSize - this.windowSize;
+            this.protectedSize = this.mainSize * 4 / 5;
+        }
+
+        private Node<V> get(K key) {
+            this.sketch.increment(key);
+
+            Node<V> node = this.window.get(key);
+            if (node == null) node = this.protectedSegment.get(key);
+            if (node == null) {
+                node = this.probation.remove(key);
+                if (node != null) this.promote(key, node);
+            }
+
+            if (node != null && node.expiresAt <= System.currentTimeMillis()) {
+                this.remove(key);
+                this.cache.expirations.increment();
+                return null;
+            }
+
+            return node;
+        }
+
+        private void promote(K key, Node<V> node) {
+            this.protectedSegment.put(key, node);
+            if (this.protectedSegment.size() <= this.protectedSize) return;
+
+            final Iterator<Map.Entry<K, Node<V>>> iterator = this.protectedSegment.entrySet().iterator();
+            final Map.Entry<K, Node<V>> demoted = iterator.next();
+            iterator.remove();
+            this.probation.put(demoted.getKey(), demoted.getValue());
+        }
+
+        private void put(K key, Node<V> node) {
+            // Already counted by the lookup that missed
+            if (this.window.containsKey(key)) {
+                this.window.put(key, node);
+                return;
+            }
+            if (this.protectedSegment.containsKey(key)) {
+                this.protectedSegment.put(key, node);
+                return;
+            }
+            if (this.probation.containsKey(key)) {
+                this.probation.put(key, node);
+                return;
+            }
+
+            this.window.put(key, node);
+            if (this.window.size() <= this.windowSize) return;
+
+            final Iterator<Map.Entry<K, Node<V>>> windowIterator = this.window.entrySet().iterator();
+            final Map.Entry<K, Node<V>> candidate = windowIterator.next();
+            windowIterator.remove();
+
+            if (this.probation.size() + this.protectedSegment.size() < this.mainSize) {
+                this.probation.put(candidate.getKey(), candidate.getValue());
+                return;
+            }
+
+            final LinkedHashMap<K, Node<V>> victims = this.probation.isEmpty() ? this.protectedSegment : this.probation;
+            final Iterator<Map.Entry<K, Node<V>>> victimIterator = victims.entrySet().iterator();
+            final Map.Entry<K, Node<V>> victim = victimIterator.next();
+
+            this.cache.evictions.increment();
+            if (this.sketch.frequency(candidate.getKey()) > this.sketch.frequency(victim.getKey())) {
+                victimIterator.remove();
+                this.probation.put(candidate.getKey(), candidate.getValue());
+            }
+        }
+
+        private void remove(K key) {
+            if (this.window.remove(key) != null) return;
+            if (this.probation.remove(key) != null) return;
+            this.protectedSegment.remove(key);
+        }
+    }
+
+    /**
+     * Approximates how often keys have been used with 4 bit counters, all counters are halved once enough keys have
+     * been counted so the frequencies follow recent usage
+     */
+    private static class FrequencySketch {
+        private static final long[] SEEDS = {0x97CB3127L, 0xB54CDA56L, 0x8BB1A3F5L, 0xE9B44ADCL};
+
+        private final long[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        private FrequencySketch(int maximumSize) {
+            // 16 counters per long
+            final int length = Integer.highestOneBit(Math.max(4, maximumSize / 4) - 1) << 1;
+            this.table = new long[length];
+            this.mask = length - 1;
+            this.sampleSize = Math.max(10, maximumSize * 10);
+        }
+
+        private int indexOf(int hash, int row) {
+            final long h = (hash + SEEDS[row]) * SEEDS[row];
+            return (int) ((h + (h >>> 32)) & this.mask);
+        }
+
+        private int offsetOf(int hash, int row) {
+            // Every row uses its own quarter of the counters in a long
+            return (row << 2) + ((hash >>> (row << 3)) & 3) << 2;
+        }
+
+        private int frequency(Object key) {
+            final int hash = spread(key.hashCode());
+            int frequency = 15;
+            for (int row = 0; row < 4; row++) {
+                final int count = (int) ((this.table[this.indexOf(hash, row)] >>> this.offsetOf(hash, row)) & 0xF);
+                frequency = Math.min(frequency, count);
+            }
+
+            return frequency;
+        }
+
+        private void increment(Object key) {
+            final int hash = spread(key.hashCode());
+            boolean added = false;
+            for (int row = 0; row < 4; row++) {
+                final int index = this.indexOf(hash, row);
+                final int offset = this.offsetOf(hash, row);
+                if (((this.table[index] >>> offset) & 0xF) != 0xF) {
+                    this.table[index] += 1L << offset;
+                    added = true;
+                }
+            }
+
+            if (added && ++this.additions >= this.sampleSize) this.reset();
+        }
+
+        private void reset() {
+            for (int i = 0; i < this.table.length; i++) {
+                this.table[i] = (this.table[i] >>> 1) & 0x7777777777777777L;
+            }
+            this.additions /= 2;
+        }
+    }
+}
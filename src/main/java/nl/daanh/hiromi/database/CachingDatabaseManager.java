@@ -0,0 +1,175 @@
+package nl.daanh.hiromi.database;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.User;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Caches the settings read from the wrapped data source in a single bounded cache, writes go straight through and
+ * invalidate what they change
+ */
+public class CachingDatabaseManager implements IDatabaseManager {
+    // Stands in for null, the cache can't hold null values and a missing setting is worth caching as well
+    private static final Object NULL = new Object();
+    // The key under which the batched settings of an entity are cached
+    private static final String ALL_SETTINGS = "*";
+
+    private final IDatabaseManager databaseManager;
+    private final BoundedCache<CacheKey, Object> cache;
+    private final long guildTtl;
+    private final long memberTtl;
+    private final long userTtl;
+
+    /**
+     * @param databaseManager the data source to cache
+     * @param maximumSize     the maximum amount of cached settings
+     * @param guildTtl        how long guild settings are cached in seconds
+     * @param memberTtl       how long member settings are cached in seconds
+     * @param userTtl         how long user settings are cached in seconds
+     */
+    public CachingDatabaseManager(IDatabaseManager databaseManager, int maximumSize, int guildTtl, int memberTtl, int userTtl) {
+        this.databaseManager = databaseManager;
+        this.cache = new BoundedCache<>(maximumSize);
+        this.guildTtl = guildTtl * 1000L;
+        this.memberTtl = memberTtl * 1000L;
+        this.userTtl = userTtl * 1000L;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T unwrap(Object value) {
+        return value == NULL ? null : (T) value;
+    }
+
+    private static Object wrap(@Nullable Object value) {
+        return value == null ? NULL : value;
+    }
+
+    private static Object wrapSettings(@Nullable Map<String, String> settings) {
+        // Shared by every reader from now on
+        return settings == null ? NULL : Collections.unmodifiableMap(settings);
+    }
+
+    public BoundedCache<CacheKey, Object> getCache() {
+        return this.cache;
+    }
+
+    @Nullable
+    @Override
+    public String getKey(Guild guild, String key) {
+        return unwrap(this.cache.get(CacheKey.of(guild, key), this.guildTtl, (k) -> wrap(this.databaseManager.getKey(guild, key))));
+    }
+
+    @Nullable
+    @Override
+    public String getKey(Member member, String key) {
+        return unwrap(this.cache.get(CacheKey.of(member, key), this.memberTtl, (k) -> wrap(this.databaseManager.getKey(member, key))));
+    }
+
+    @Nullable
+    @Override
+    public String getKey(User user, String key) {
+        return unwrap(this.cache.get(CacheKey.of(user, key), this.userTtl, (k) -> wrap(this.databaseManager.getKey(user, key))));
+    }
+
+    @Nullable
+    @Override
+    public Map<String, String> getSettings(Guild guild) {
+        return unwrap(this.cache.get(CacheKey.of(guild, ALL_SETTINGS), this.guildTtl, (k) -> wrapSettings(this.databaseManager.getSettings(guild))));
+    }
+
+    @Nullable
+    @Override
+    public Map<String, String> getSettings(Member member) {
+        return unwrap(this.cache.get(CacheKey.of(member, ALL_SETTINGS), this.memberTtl, (k) -> wrapSettings(this.databaseManager.getSettings(member))));
+    }
+
+    @Nullable
+    @Override
+    public Map<String, String> getSettings(User user) {
+        return unwrap(this.cache.get(CacheKey.of(user, ALL_SETTINGS), this.userTtl, (k) -> wrapSettings(this.databaseManager.getSettings(user))));
+    }
+
+    @Override
+    public boolean isLoaded(Guild guild) {
+        return this.databaseManager.isLoaded(guild);
+    }
+
+    @Override
+    public void prefetch(Member member) {
+        this.databaseManager.prefetch(member);
+    }
+
+    @Override
+    public void writeKey(Guild guild, String key, String value) {
+        this.databaseManager.writeKey(guild, key, value);
+        this.cache.invalidate(CacheKey.of(guild, key));
+        this.cache.invalidate(CacheKey.of(guild, ALL_SETTINGS));
+    }
+
+    @Override
+    public void writeKey(Member member, String key, String value) {
+        this.databaseManager.writeKey(member, key, value);
+        this.cache.invalidate(CacheKey.of(member, key));
+        this.cache.invalidate(CacheKey.of(member, ALL_SETTINGS));
+    }
+
+    @Override
+    public void writeKey(User user, String key, String value) {
+        this.databaseManager.writeKey(user, key, value);
+        this.cache.invalidate(CacheKey.of(user, key));
+        this.cache.invalidate(CacheKey.of(user, ALL_SETTINGS));
+    }
+
+    /**
+     * Identifies a setting of a guild, member or user
+     */
+    public static class CacheKey {
+        private static final int GUILD = 0;
+        private static final int MEMBER = 1;
+        private static final int USER = 2;
+
+        private final int type;
+        private final long id;
+        // The guild of a member, 0 for guilds and users
+        private final long guildId;
+        private final String key;
+
+        private CacheKey(int type, long id, long guildId, String key) {
+            this.type = type;
+            this.id = id;
+            this.guildId = guildId;
+            this.key = key;
+        }
+
+        private static CacheKey of(Guild guild, String key) {
+            return new CacheKey(GUILD, guild.getIdLong(), 0, key);
+        }
+
+        private static CacheKey of(Member member, String key) {
+            return new CacheKey(MEMBER, member.getIdLong(), member.getGuild().getIdLong(), key);
+        }
+
+        private static CacheKey of(User user, String key) {
+            return new CacheKey(USER, user.getIdLong(), 0, key);
+        }
+
+        @Override
+        public int hashCode() {
+            long hash = this.id * 0x9E3779B97F4A7C15L + this.guildId;
+            hash = hash * 31 + this.type;
+            return Long.hashCode(hash) * 31 + this.key.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CacheKey)) return false;
+
+            final CacheKey other = (CacheKey) o;
+            return other.type == this.type && other.id == this.id && other.guildId == this.guildId && other.key.equals(this.key);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package nl.daanh.hiromi.database;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.User;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the prefix of every guild in memory, a prefix is read from the data source again once it's older than the time
+ * to live and replaced when it's written. A prefix is only kept once the data source has loaded the guild, until then
+ * it's read again for every message.
+ */
+public class GuildPrefixTable implements IDatabaseManager {
+    private static final String PREFIX_KEY = "prefix";
+    private final IDatabaseManager databaseManager;
+    private final String globalPrefix;
+    private final long ttl;
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param databaseManager the data source the prefixes are read from
+     * @param globalPrefix    the prefix of guilds that don't have their own
+     * @param ttl             how long a prefix is kept before it's read again in seconds, changes made outside of this
+     *                        process show up after it
+     */
+    public GuildPrefixTable(IDatabaseManager databaseManager, String globalPrefix, int ttl) {
+        this.databaseManager = databaseManager;
+        this.globalPrefix = globalPrefix;
+        this.ttl = TimeUnit.SECONDS.toNanos(ttl);
+    }
+
+    private Entry getEntry(Guild guild) {
+        final Entry entry = this.entries.get(guild.getIdLong());
+        if (entry != null && System.nanoTime() - entry.readAt < this.ttl) return entry;
+
+        // Checked before the read, a prefix read before the guild was loaded is the default
+        final boolean loaded = this.databaseManager.isLoaded(guild);
+        // Read outside of the map, a blocking read must not hold the lock of its bin
+        final Entry read = new Entry(this.databaseManager.getKey(guild, PREFIX_KEY), this.globalPrefix);
+        // An expired prefix is still better than the default
+        if (!loaded) return entry != null ? entry : read;
+
+        // A prefix written in the meantime has already been put in and wins
+        if (entry == null) {
+            final Entry existing = this.entries.putIfAbsent(guild.getIdLong(), read);
+            return existing != null ? existing : read;
+        }
+
+        if (this.entries.replace(guild.getIdLong(), entry, read)) return read;
+        return this.entries.getOrDefault(guild.getIdLong(), read);
+    }
+
+    /**
+     * Gets the prefix a message has to start with to be a command in this guild
+     *
+     * @param guild   the guild the message has been sent in
+     * @param content the raw content of the message
+     * @return the prefix of the guild, null when the message can't start with it
+     */
+    @Nullable
+    public String getCommandPrefix(Guild guild, String content) {
+        final Entry entry = this.getEntry(guild);
+        return entry.mayStartWith(content) ? entry.effectivePrefix : null;
+    }
+
+    /**
+     * Forgets the prefix of a guild, it will be read from the data source again when it's needed
+     *
+     * @param guildId the id of the guild
+     */
+    public void invalidate(long guildId) {
+        this.entries.remove(guildId);
+    }
+
+    @Nullable
+    @Override
+    public String getKey(Guild guild, String key) {
+        if (PREFIX_KEY.equals(key)) return this.getEntry(guild).prefix;
+
+        return this.databaseManager.getKey(guild, key);
+    }
+
+    @Nullable
+    @Override
+    public String getKey(Member member, String key) {
+        return this.databaseManager.getKey(member, key);
+    }
+
+    @Nullable
+    @Override
+    public String getKey(User user, String key) {
+        return this.databaseManager.getKey(user, key);
+    }
+
+    @Override
+    public boolean isLoaded(Guild guild) {
+        return this.databaseManager.isLoaded(guild);
+    }
+
+    @Override
+    public void prefetch(Member member) {
+        this.databaseManager.prefetch(member);
+    }
+
+    @Nullable
+    @Override
+    public Map<String, String> getSettings(Guild guild) {
+        return this.databaseManager.getSettings(guild);
+    }
+
+    @Nullable
+    @Override
+    public Map<String, String> getSettings(Member member) {
+        return this.databaseManager.getSettings(member);
+    }
+
+    @Nullable
+    @Override
+    public Map<String, String> getSettings(User user) {
+        return this.databaseManager.getSettings(user);
+    }
+
+    @Override
+    public void writeKey(Guild guild, String key, String value) {
+        this.databaseManager.writeKey(guild, key, value);
+
+        // Replaced after the write so a concurrent read can't put the old prefix back
+        if (PREFIX_KEY.equals(key))
+            this.entries.compute(guild.getIdLong(), (guildId, entry) -> new Entry(value, this.globalPrefix));
+    }
+
+    @Override
+    public void writeKey(Member member, String key, String value) {
+        this.databaseManager.writeKey(member, key, value);
+    }
+
+    @Override
+    public void writeKey(User user, String key, String value) {
+        this.databaseManager.writeKey(user, key, value);
+    }
+
+    private static class Entry {
+        @Nullable
+        private final String prefix;
+        private final String effectivePrefix;
+        private final long readAt = System.nanoTime();
+        // Both cases of the first character, most messages don't start with either of them
+        private final char firstLower;
+        private final char firstUpper;
+
+        private Entry(@Nullable String prefix, String globalPrefix) {
+            this.prefix = prefix;
+            this.effectivePrefix = prefix != null ? prefix : globalPrefix;
+
+            final char first = this.effectivePrefix.isEmpty() ? 0 : this.effectivePrefix.charAt(0);
+            this.firstLower = Character.toLowerCase(first);
+            this.firstUpper = Character.toUpperCase(first);
+        }
+
+        private boolean mayStartWith(String content) {
+            if (this.effectivePrefix.isEmpty()) return true;
+            if (content.length() <= this.effectivePrefix.length()) return false;
+
+            final char first = content.charAt(0);
+            return first == this.firstLower || first == this.firstUpper || Character.toLowerCase(first) == this.firstLower;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package nl.daanh.hiromi.database;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.User;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non blocking counterpart of {@link IDatabaseManager}, the futures complete with the same values the blocking methods return
+ */
+public interface IAsyncDatabaseManager {
+    CompletableFuture<String> getKeyAsync(Guild guild, String key);
+
+    CompletableFuture<String> getKeyAsync(Member member, String key);
+
+    CompletableFuture<String> getKeyAsync(User user, String key);
+
+    CompletableFuture<Void> writeKeyAsync(Guild guild, String key, String value);
+
+    CompletableFuture<Void> writeKeyAsync(Member member, String key, String value);
+
+    CompletableFuture<Void> writeKeyAsync(User user, String key, String value);
+
+    private static long parseAmount(String amount) {
+        try {
+            return Long.parseLong(amount != null ? amount : "0");
+        } catch (NumberFormatException exception) {
+            return 0;
+        }
+    }
+
+    default CompletableFuture<String> getPrefixAsync(Guild guild) {
+        return this.getKeyAsync(guild, "prefix");
+    }
+
+    default CompletableFuture<String> getCurrencyAsync(Guild guild) {
+        return this.getKeyAsync(guild, "currency");
+    }
+
+    default CompletableFuture<Long> getBankAmountAsync(Member member) {
+        return this.getKeyAsync(member, "bank").thenApply(IAsyncDatabaseManager::parseAmount);
+    }
+
+    default CompletableFuture<Long> getCashAmountAsync(Member member) {
+        return this.getKeyAsync(member, "cash").thenApply(IAsyncDatabaseManager::parseAmount);
+    }
+
+    default CompletableFuture<Void> setBankAmountAsync(Member member, long bankAmount) {
+        return this.writeKeyAsync(member, "bank", String.valueOf(bankAmount));
+    }
+
+    default CompletableFuture<Void> setCashAmountAsync(Member member, long cashAmount) {
+        return this.writeKeyAsync(member, "cash", String.valueOf(cashAmount));
+    }
+}
@@ -13,6 +13,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
 import java.util.stream.Collectors;
 
@@ -36,6 +37,7 @@ public interface IDatabaseManager {
                 return "0";
             case "birthdate":
             case "timezone":
+            case "commands_hash":
                 return null;
             default:
                 throw new RuntimeException("No default value for " + key.toUpperCase());
@@ -51,6 +53,59 @@ public interface IDatabaseManager {
     @Nullable
     String getKey(User user, String key);
 
+    /**
+     * Gets every stored setting of a guild in one fetch
+     *
+     * @param guild the guild to get the settings of
+     * @return the stored settings, null when this data source only fetches settings one by one
+     */
+    @Nullable
+    default Map<String, String> getSettings(Guild guild) {
+        return null;
+    }
+
+    /**
+     * Gets every stored setting of a member in one fetch
+     *
+     * @param member the member to get the settings of
+     * @return the stored settings, null when this data source only fetches settings one by one
+     */
+    @Nullable
+    default Map<String, String> getSettings(Member member) {
+        return null;
+    }
+
+    /**
+     * Gets every stored setting of a user in one fetch
+     *
+     * @param user the user to get the settings of
+     * @return the stored settings, null when this data source only fetches settings one by one
+     */
+    @Nullable
+    default Map<String, String> getSettings(User user) {
+        return null;
+    }
+
+    /**
+     * Whether reads of a guild return its stored settings, a data source that loads settings in the background
+     * returns the defaults until they have been loaded
+     *
+     * @param guild the guild to check
+     * @return false when reads of the guild would return defaults instead of its stored settings
+     */
+    default boolean isLoaded(Guild guild) {
+        return true;
+    }
+
+    /**
+     * Loads the settings of a member, its guild and its user at once, so a data source can fetch them together
+     * instead of one after the other when they are read
+     *
+     * @param member the member to load the settings of
+     */
+    default void prefetch(Member member) {
+    }
+
     void writeKey(Guild guild, String key, String value);
 
     void writeKey(Member member, String key, String value);
@@ -0,0 +1,137 @@
+package nl.daanh.hiromi.database;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.User;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * The settings a single command invocation reads, every guild, member and user is loaded at most once and in one fetch
+ * when the data source supports it. Writes go straight through to the data source.
+ */
+public class SettingsSnapshot implements IDatabaseManager {
+    private final IDatabaseManager databaseManager;
+    private final ConcurrentHashMap<Long, EntitySettings> guilds = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<MemberKey, EntitySettings> members = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, EntitySettings> users = new ConcurrentHashMap<>();
+
+    public SettingsSnapshot(IDatabaseManager databaseManager) {
+        this.databaseManager = databaseManager;
+    }
+
+    private EntitySettings getSettings(Guild guild, boolean load) {
+        return this.guilds.computeIfAbsent(guild.getIdLong(), (guildId) -> new EntitySettings(load ? this.databaseManager.getSettings(guild) : null));
+    }
+
+    private EntitySettings getSettings(Member member, boolean load) {
+        return this.members.computeIfAbsent(new MemberKey(member.getGuild().getIdLong(), member.getIdLong()), (key) -> new EntitySettings(load ? this.databaseManager.getSettings(member) : null));
+    }
+
+    private EntitySettings getSettings(User user, boolean load) {
+        return this.users.computeIfAbsent(user.getIdLong(), (userId) -> new EntitySettings(load ? this.databaseManager.getSettings(user) : null));
+    }
+
+    @Nullable
+    @Override
+    public String getKey(Guild guild, String key) {
+        return this.getSettings(guild, true).get(key, () -> this.databaseManager.getKey(guild, key));
+    }
+
+    @Nullable
+    @Override
+    public String getKey(Member member, String key) {
+        return this.getSettings(member, true).get(key, () -> this.databaseManager.getKey(member, key));
+    }
+
+    @Nullable
+    @Override
+    public String getKey(User user, String key) {
+        return this.getSettings(user, true).get(key, () -> this.databaseManager.getKey(user, key));
+    }
+
+    @Override
+    public boolean isLoaded(Guild guild) {
+        return this.databaseManager.isLoaded(guild);
+    }
+
+    @Override
+    public void prefetch(Member member) {
+        this.databaseManager.prefetch(member);
+    }
+
+    @Override
+    public void writeKey(Guild guild, String key, String value) {
+        this.databaseManager.writeKey(guild, key, value);
+        this.getSettings(guild, false).put(key, value);
+    }
+
+    @Override
+    public void writeKey(Member member, String key, String value) {
+        this.databaseManager.writeKey(member, key, value);
+        this.getSettings(member, false).put(key, value);
+    }
+
+    @Override
+    public void writeKey(User user, String key, String value) {
+        this.databaseManager.writeKey(user, key, value);
+        this.getSettings(user, false).put(key, value);
+    }
+
+    private static class MemberKey {
+        private final long guildId;
+        private final long memberId;
+
+        private MemberKey(long guildId, long memberId) {
+            this.guildId = guildId;
+            this.memberId = memberId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(this.guildId * 31 + this.memberId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof MemberKey)) return false;
+
+            final MemberKey other = (MemberKey) o;
+            return other.guildId == this.guildId && other.memberId == this.memberId;
+        }
+    }
+
+    private class EntitySettings {
+        // Every stored setting of the entity, null when the data source can't fetch them all at once
+        @Nullable
+        private final Map<String, String> stored;
+        private final Map<String, String> values = new HashMap<>();
+
+        private EntitySettings(@Nullable Map<String, String> stored) {
+            this.stored = stored;
+        }
+
+        private synchronized String get(String key, Supplier<String> loader) {
+            if (this.values.containsKey(key)) return this.values.get(key);
+
+            final String value;
+            if (this.stored == null)
+                value = loader.get();
+            else if (this.stored.containsKey(key))
+                value = this.stored.get(key);
+            else
+                value = SettingsSnapshot.this.databaseManager.getDefaultSetting(key);
+
+            this.values.put(key, value);
+            return value;
+        }
+
+        private synchronized void put(String key, String value) {
+            this.values.put(key, value);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package nl.daanh.hiromi.database;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.User;
+import nl.daanh.hiromi.metrics.PipelineMetrics;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+
+/**
+ * Records the latency of every call to the wrapped data source
+ */
+public class TimedDatabaseManager implements IDatabaseManager {
+    private final IDatabaseManager databaseManager;
+
+    public TimedDatabaseManager(IDatabaseManager databaseManager) {
+        this.databaseManager = databaseManager;
+    }
+
+    private static void record(String entity, String key, long startedAt) {
+        PipelineMetrics.record(PipelineMetrics.Stage.DATABASE, entity + "." + key, System.nanoTime() - startedAt);
+    }
+
+    @Nullable
+    @Override
+    public String getKey(Guild guild, String key) {
+        final long startedAt = System.nanoTime();
+        try {
+            return this.databaseManager.getKey(guild, key);
+        } finally {
+            record("guild", key, startedAt);
+        }
+    }
+
+    @Nullable
+    @Override
+    public String getKey(Member member, String key) {
+        final long startedAt = System.nanoTime();
+        try {
+            return this.databaseManager.getKey(member, key);
+        } finally {
+            record("member", key, startedAt);
+        }
+    }
+
+    @Nullable
+    @Override
+    public String getKey(User user, String key) {
+        final long startedAt = System.nanoTime();
+        try {
+            return this.databaseManager.getKey(user, key);
+        } finally {
+            record("user", key, startedAt);
+        }
+    }
+
+    @Nullable
+    @Override
+    public Map<String, String> getSettings(Guild guild) {
+        final long startedAt = System.nanoTime();
+        try {
+            return this.databaseManager.getSettings(guild);
+        } finally {
+            record("guild", "*", startedAt);
+        }
+    }
+
+    @Nullable
+    @Override
+    public Map<String, String> getSettings(Member member) {
+        final long startedAt = System.nanoTime();
+        try {
+            return this.databaseManager.getSettings(member);
+        } finally {
+            record("member", "*", startedAt);
+        }
+    }
+
+    @Nullable
+    @Override
+    public Map<String, String> getSettings(User user) {
+        final long startedAt = System.nanoTime();
+        try {
+            return this.databaseManager.getSettings(user);
+        } finally {
+            record("user", "*", startedAt);
+        }
+    }
+
+    @Override
+    public boolean isLoaded(Guild guild) {
+        return this.databaseManager.isLoaded(guild);
+    }
+
+    @Override
+    public void prefetch(Member member) {
+        final long startedAt = System.nanoTime();
+        try {
+            this.databaseManager.prefetch(member);
+        } finally {
+            record("member", "prefetch", startedAt);
+        }
+    }
+
+    @Override
+    public void writeKey(Guild guild, String key, String value) {
+        final long startedAt = System.nanoTime();
+        try {
+            this.databaseManager.writeKey(guild, key, value);
+        } finally {
+            record("guild", key, startedAt);
+        }
+    }
+
+    @Override
+    public void writeKey(Member member, String key, String value) {
+        final long startedAt = System.nanoTime();
+        try {
+            this.databaseManager.writeKey(member, key, value);
+        } finally {
+            record("member", key, startedAt);
+        }
+    }
+
+    @Override
+    public void writeKey(User user, String key, String value) {
+        final long startedAt = System.nanoTime();
+        try {
+            this.databaseManager.writeKey(user, key, value);
+        } finally {
+            record("user", key, startedAt);
+        }
+    }
+}
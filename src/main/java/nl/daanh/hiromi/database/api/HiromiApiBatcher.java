@@ -0,0 +1,188 @@
+package nl.daanh.hiromi.database.api;
+
+import nl.daanh.hiromi.utils.WebUtils;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.jetbrains.annotations.NotNull;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the entity loads started within a short window and fetches them from the api in a single request. The
+ * batch endpoint receives the paths of the entities and answers with one result per path in the same order:
+ * <pre>
+ * {"requests": ["/api/bot/guilds/1", "/api/bot/members/2"]}
+ * {"data": [{"status": 200, "data": {...}}, {"status": 404}]}
+ * </pre>
+ * A result that failed only fails the load of its own entity. When the api doesn't know the batch endpoint every
+ * entity is fetched on its own from then on.
+ */
+public class HiromiApiBatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HiromiApiBatcher.class);
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    private final String endpoint;
+    private final long window;
+    private final int maxSize;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor((r) -> {
+        final Thread thread = new Thread(r, "Hiromi-Api-Batcher");
+        thread.setDaemon(true);
+
+        return thread;
+    });
+    // Guarded by this
+    private List<PendingLoad> pending = new ArrayList<>();
+    private volatile boolean supported = true;
+
+    /**
+     * @param endpoint the base url of the api
+     * @param window   how long a load waits for others to join its batch in milliseconds
+     * @param maxSize  the maximum amount of entities in one batch
+     */
+    public HiromiApiBatcher(String endpoint, long window, int maxSize) {
+        this.endpoint = endpoint;
+        this.window = window;
+        this.maxSize = Math.max(1, maxSize);
+    }
+
+    /**
+     * Gets the settings of an entity as part of the next batch
+     *
+     * @param path the path of the entity
+     * @return completes with the settings, null when the entity doesn't exist
+     */
+    public CompletableFuture<SettingsMap> fetch(String path) {
+        if (!this.supported) return HiromiApiDataSource.fetch(this.endpoint + path);
+
+        final PendingLoad load = new PendingLoad(path);
+        List<PendingLoad> full = null;
+        synchronized (this) {
+            this.pending.add(load);
+            if (this.pending.size() >= this.maxSize) {
+                full = this.pending;
+                this.pending = new ArrayList<>();
+            } else if (this.pending.size() == 1) {
+                this.executor.schedule(this::flush, this.window, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (full != null) this.send(full);
+        return load.future;
+    }
+
+    private void flush() {
+        final List<PendingLoad> batch;
+        synchronized (this) {
+            batch = this.pending;
+            this.pending = new ArrayList<>();
+        }
+
+        this.send(batch);
+    }
+
+    private void send(List<PendingLoad> batch) {
+        if (batch.isEmpty()) return;
+
+        // Nothing to combine, use the regular endpoint
+        if (batch.size() == 1 || !this.supported) {
+            for (PendingLoad load : batch) {
+                this.fetchSingle(load);
+            }
+            return;
+        }
+
+        final JSONArray paths = new JSONArray();
+        for (PendingLoad load : batch) {
+            paths.put(load.path);
+        }
+
+        try {
+            final RequestBody body = RequestBody.create(JSON, new JSONObject().put("requests", paths).toString());
+            WebUtils.apiPostToUrl(this.endpoint + "/api/bot/batch", body, new Callback() {
+                @Override
+                public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                    fail(batch, e);
+                }
+
+                @Override
+                public void onResponse(@NotNull Call call, @NotNull Response response) {
+                    try (response) {
+                        final ResponseBody responseBody = response.body();
+                        if (response.code() == 404 || response.code() == 405) {
+                            LOGGER.warn("The api doesn't support batched requests, fetching every entity on its own.");
+                            supported = false;
+                            for (PendingLoad load : batch) {
+                                fetchSingle(load);
+                            }
+                        } else if (response.isSuccessful() && responseBody != null) {
+                            complete(batch, SettingsParser.readBatch(responseBody.charStream()));
+                        } else {
+                            fail(batch, new IOException("Response did not contain valid data"));
+                        }
+                    } catch (IOException | JSONException exception) {
+                        fail(batch, exception);
+                    }
+                }
+            });
+        } catch (IOException exception) {
+            fail(batch, exception);
+        }
+    }
+
+    private void fetchSingle(PendingLoad load) {
+        HiromiApiDataSource.fetch(this.endpoint + load.path).whenComplete((settings, exception) -> {
+            if (exception != null) load.future.completeExceptionally(exception);
+            else load.future.complete(settings);
+        });
+    }
+
+    private static void complete(List<PendingLoad> batch, List<SettingsParser.BatchResult> results) {
+        for (int i = 0; i < batch.size(); i++) {
+            final CompletableFuture<SettingsMap> future = batch.get(i).future;
+            if (i >= results.size()) {
+                future.completeExceptionally(new IOException("Response did not contain a result for " + batch.get(i).path));
+                continue;
+            }
+
+            final SettingsParser.BatchResult result = results.get(i);
+            if (result.getStatus() == 404) {
+                // Not found so ignore
+                future.complete(null);
+            } else if (result.getStatus() >= 200 && result.getStatus() < 300 && result.getSettings() != null) {
+                future.complete(result.getSettings());
+            } else {
+                future.completeExceptionally(new IOException("Response did not contain valid data for " + batch.get(i).path));
+            }
+        }
+    }
+
+    private static void fail(List<PendingLoad> batch, Throwable exception) {
+        for (PendingLoad load : batch) {
+            load.future.completeExceptionally(exception);
+        }
+    }
+
+    private static class PendingLoad {
+        private final String path;
+        private final CompletableFuture<SettingsMap> future = new CompletableFuture<>();
+
+        private PendingLoad(String path) {
+            this.path = path;
+        }
+    }
+}
@@ -4,61 +4,256 @@ import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.internal.utils.tuple.Pair;
+import nl.daanh.hiromi.Hiromi;
 import nl.daanh.hiromi.database.IDatabaseManager;
+import nl.daanh.hiromi.models.configuration.IHiromiConfig;
+import nl.daanh.hiromi.utils.WebUtils;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.FormBody;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.jetbrains.annotations.NotNull;
 import org.json.JSONException;
-import org.json.JSONObject;
 
 import javax.annotation.Nullable;
-import java.time.Instant;
-import java.util.HashMap;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 
+/**
+ * Reads settings from the Hiromi API. Loaded entities are cached and never modified, a write replaces the cached
+ * entity with an updated copy. Only the settings of an entity are parsed from a response and cached. Concurrent loads of one entity share a single request.
+ * <p>
+ * A cached entity is refreshed in the background once it's older than the soft time to live, reads keep using it
+ * until the refresh lands. Only after the hard time to live it's no longer used. Entities the api doesn't know are
+ * cached as well so they only read the defaults, until they're written to or their own time to live passes.
+ * <p>
+ * Settings written while a load is running are applied to its result as well, a load that started before a write
+ * can't put the settings from before it back.
+ */
 public abstract class HiromiApiDataSource implements IDatabaseManager {
     private static final String endpoint = "https://hiromi.daanh.nl";
-    private static final int EXPIRE_IN = 300;
-    private static final HashMap<Long, Pair<Instant, JSONObject>> guildCache = new HashMap<>();
-    private static final HashMap<Long, Pair<Instant, JSONObject>> userCache = new HashMap<>();
-    private static final HashMap<Pair<Long, Long>, Pair<Instant, JSONObject>> guildMemberCache = new HashMap<>();
+    // Spreads the refreshes of entities that were loaded together, up to this fraction of the soft time to live earlier
+    private static final double REFRESH_JITTER = 0.2;
+    private static final ConcurrentHashMap<Long, CachedEntity> guildCache = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Long, CachedEntity> userCache = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Pair<Long, Long>, CachedEntity> guildMemberCache = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Long, Load> guildLoads = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Long, Load> userLoads = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Pair<Long, Long>, Load> guildMemberLoads = new ConcurrentHashMap<>();
 
-    protected abstract void load(String url, HashMap<Long, Pair<Instant, JSONObject>> cache, long cacheKey);
+    private final long softTtl;
+    private final long hardTtl;
+    private final long missingTtl;
+    @Nullable
+    private final HiromiApiBatcher batcher;
 
-    protected abstract void load(String url, HashMap<Pair<Long, Long>, Pair<Instant, JSONObject>> cache, long cacheKey1, long cacheKey2);
+    protected HiromiApiDataSource() {
+        final IHiromiConfig config = Hiromi.getConfig();
+        this.softTtl = config.getApiCacheSoftTtl() * 1000L;
+        this.hardTtl = Math.max(config.getApiCacheHardTtl() * 1000L, this.softTtl);
+        this.missingTtl = Math.min(config.getApiCacheMissingTtl() * 1000L, this.hardTtl);
+        this.batcher = config.getApiBatchEnabled() ? new HiromiApiBatcher(endpoint, config.getApiBatchWindow(), config.getApiBatchSize()) : null;
+    }
 
-    protected abstract void writeKey(String url, HashMap<Long, Pair<Instant, JSONObject>> cache, long cacheKey, String key, String value);
+    /**
+     * Decides whether a read or write waits for its request to finish
+     *
+     * @param request the request that has been started
+     */
+    protected abstract void await(CompletableFuture<?> request);
 
-    protected abstract void writeKey(String url, HashMap<Pair<Long, Long>, Pair<Instant, JSONObject>> cache, long cacheKey1, long cacheKey2, String key, String value);
+    /**
+     * Gets the settings of an entity from the api
+     *
+     * @param url the url of the entity
+     * @return completes with the settings, null when the entity doesn't exist
+     */
+    static CompletableFuture<SettingsMap> fetch(String url) {
+        final CompletableFuture<SettingsMap> future = new CompletableFuture<>();
+        try {
+            WebUtils.apiGetJsonFromUrl(url, new Callback() {
+                @Override
+                public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                    future.completeExceptionally(e);
+                }
 
-    private void load(Guild guild) {
-        final Pair<Instant, JSONObject> cached = guildCache.get(guild.getIdLong());
-        if (cached != null && cached.getLeft().isAfter(Instant.now().minusSeconds(EXPIRE_IN)))
-            return;
+                @Override
+                public void onResponse(@NotNull Call call, @NotNull Response response) {
+                    try (response) {
+                        final ResponseBody body = response.body();
+                        if (response.isSuccessful() && body != null) {
+                            future.complete(SettingsParser.readEntity(body.charStream()));
+                        } else if (response.code() == 404) {
+                            // Not found so ignore
+                            future.complete(null);
+                        } else {
+                            future.completeExceptionally(new IOException("Response did not contain valid data"));
+                        }
+                    } catch (IOException | JSONException exception) {
+                        future.completeExceptionally(exception);
+                    }
+                }
+            });
+        } catch (IOException exception) {
+            future.completeExceptionally(exception);
+        }
 
-        load(endpoint + "/api/bot/guilds/" + guild.getId(), guildCache, guild.getIdLong());
+        return future;
     }
 
-    private void load(Member member) {
-        final Pair<Instant, JSONObject> cached = guildMemberCache.get(Pair.of(member.getGuild().getIdLong(), member.getIdLong()));
-        if (cached != null && cached.getLeft().isAfter(Instant.now().minusSeconds(EXPIRE_IN)))
-            return;
+    private static CompletableFuture<Void> post(String url, String value) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            final RequestBody body = new FormBody.Builder()
+                    .add("value", value)
+                    .build();
+
+            WebUtils.apiPostToUrl(url, body, new Callback() {
+                @Override
+                public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                    future.completeExceptionally(e);
+                }
+
+                @Override
+                public void onResponse(@NotNull Call call, @NotNull Response response) {
+                    try (response) {
+                        if (response.isSuccessful() && response.body() != null) future.complete(null);
+                        else future.completeExceptionally(new IOException("Response did not contain valid data"));
+                    }
+                }
+            });
+        } catch (IOException exception) {
+            future.completeExceptionally(exception);
+        }
+
+        return future;
+    }
+
+    private CompletableFuture<SettingsMap> fetchEntity(String path) {
+        if (this.batcher != null) return this.batcher.fetch(path);
+
+        return fetch(endpoint + path);
+    }
+
+    /**
+     * Loads an entity unless a fresh copy is cached, a load that is already running is joined instead of repeated
+     *
+     * @return completes once the entity has been loaded
+     */
+    private <K> CompletableFuture<Void> load(String path, ConcurrentHashMap<K, CachedEntity> cache, ConcurrentHashMap<K, Load> loads, K cacheKey) {
+        final CachedEntity cached = cache.get(cacheKey);
+        final long now = System.currentTimeMillis();
+        if (cached != null && now < cached.refreshAt)
+            return CompletableFuture.completedFuture(null);
+
+        final Load load = new Load();
+        final Load running = loads.putIfAbsent(cacheKey, load);
+        if (running == null) {
+            this.fetchEntity(path).whenComplete((settings, exception) -> {
+                // Nothing might be waiting for the load, a background refresh or a read of the async source included
+                if (exception != null) LOGGER.error("Could not load {} from the api.", path, exception);
 
-        load(endpoint + "/api/bot/guilds/" + member.getGuild().getId() + "/members/" + member.getId(), guildMemberCache, member.getGuild().getIdLong(), member.getIdLong());
+                // Cache before leaving the running loads so a reader always finds one of them
+                if (exception == null) load.land(settings, (landed) -> cache.put(cacheKey, this.createEntity(landed)));
+                loads.remove(cacheKey, load);
+
+                if (exception != null) load.completeExceptionally(exception);
+                else load.complete(null);
+            });
+        }
+
+        // Stale but usable, the refresh finishes in the background
+        if (cached != null && now < cached.expiresAt)
+            return CompletableFuture.completedFuture(null);
+
+        return running != null ? running : load;
+    }
+
+    private CachedEntity createEntity(@Nullable SettingsMap settings) {
+        final long loadedAt = System.currentTimeMillis();
+        final long ttl = settings != null ? this.softTtl : this.missingTtl;
+        final long jitter = (long) (ttl * REFRESH_JITTER * ThreadLocalRandom.current().nextDouble());
+        return new CachedEntity(settings, loadedAt + ttl - jitter, loadedAt + this.hardTtl);
+    }
+
+    /**
+     * Gets a cached entity that is still usable
+     */
+    @Nullable
+    private static <K> CachedEntity getCached(ConcurrentHashMap<K, CachedEntity> cache, K cacheKey) {
+        final CachedEntity cached = cache.get(cacheKey);
+        if (cached == null || System.currentTimeMillis() >= cached.expiresAt) return null;
+
+        return cached;
+    }
+
+    /**
+     * Writes a setting and replaces the cached entity with a copy that contains it
+     */
+    private static <K> CompletableFuture<Void> writeKey(String url, ConcurrentHashMap<K, CachedEntity> cache, ConcurrentHashMap<K, Load> loads, K cacheKey, String key, String value) {
+        return post(url + key, value).thenRun(() -> {
+            // Recorded before the cached entity is replaced, a load that lands in between has already applied it
+            final Load running = loads.get(cacheKey);
+            if (running != null) running.written(key, value);
+
+            cache.computeIfPresent(cacheKey, (k, cached) -> {
+                // The entity exists now, the next read loads it
+                if (cached.settings == null) return null;
+
+                return new CachedEntity(cached.settings.with(key, value), cached.refreshAt, cached.expiresAt);
+            });
+        }).whenComplete((result, exception) -> {
+            // The async source doesn't wait for the write, this is the only place a lost write shows up
+            if (exception != null) LOGGER.error("Could not write {} to the api.", url + key, exception);
+        });
+    }
+
+    private void load(Guild guild) {
+        await(load("/api/bot/guilds/" + guild.getId(), guildCache, guildLoads, guild.getIdLong()));
+    }
+
+    private void load(Member member) {
+        await(load("/api/bot/guilds/" + member.getGuild().getId() + "/members/" + member.getId(), guildMemberCache, guildMemberLoads, Pair.of(member.getGuild().getIdLong(), member.getIdLong())));
     }
 
     private void load(User user) {
-        final Pair<Instant, JSONObject> cached = userCache.get(user.getIdLong());
-        if (cached != null && cached.getLeft().isAfter(Instant.now().minusSeconds(EXPIRE_IN)))
-            return;
+        await(load("/api/bot/members/" + user.getId(), userCache, userLoads, user.getIdLong()));
+    }
+
+    @Override
+    public void prefetch(Member member) {
+        // Without batching every load is its own request, only what is actually read gets loaded
+        if (this.batcher == null) return;
 
-        load(endpoint + "/api/bot/members/" + user.getId(), userCache, user.getIdLong());
+        // All three are started before waiting so they end up in the same batch
+        await(CompletableFuture.allOf(
+                load("/api/bot/guilds/" + member.getGuild().getId(), guildCache, guildLoads, member.getGuild().getIdLong()),
+                load("/api/bot/guilds/" + member.getGuild().getId() + "/members/" + member.getId(), guildMemberCache, guildMemberLoads, Pair.of(member.getGuild().getIdLong(), member.getIdLong())),
+                load("/api/bot/members/" + member.getId(), userCache, userLoads, member.getIdLong())
+        ));
+    }
+
+    /**
+     * @param guild the guild to check
+     * @return true when usable settings of the guild are cached
+     */
+    protected boolean isCached(Guild guild) {
+        return getCached(guildCache, guild.getIdLong()) != null;
     }
 
     @Nullable
-    private String getKey(HashMap<Long, Pair<Instant, JSONObject>> cache, long cacheKey, String key) {
-        final Pair<Instant, JSONObject> cached = cache.get(cacheKey);
-        if (cached != null) {
-            final JSONObject json = cached.getRight();
-            if (json.getJSONObject("settings").has(key)) {
-                return json.getJSONObject("settings").getString(key);
-            }
+    private <K> String getKey(ConcurrentHashMap<K, CachedEntity> cache, K cacheKey, String key) {
+        final CachedEntity cached = getCached(cache, cacheKey);
+        if (cached != null && cached.settings != null) {
+            final String value = cached.settings.get(key);
+            if (value != null) return value;
         }
 
         return this.getDefaultSetting(key);
@@ -82,34 +277,96 @@ public abstract class HiromiApiDataSource implements IDatabaseManager {
     @Nullable
     public String getKey(Member member, String key) {
         load(member);
-        final Pair<Instant, JSONObject> cached = guildMemberCache.get(Pair.of(member.getGuild().getIdLong(), member.getIdLong()));
-        try {
-            if (cached != null) {
-                final JSONObject json = cached.getRight();
+        return getKey(guildMemberCache, Pair.of(member.getGuild().getIdLong(), member.getIdLong()), key);
+    }
 
-                if (json.getJSONObject("settings").has(key)) {
-                    return json.getJSONObject("settings").getString(key);
-                }
-            }
-        } catch (JSONException e) {
-            LOGGER.error("Something went wrong trying to parse the JSON.", e);
-        }
+    @Nullable
+    private static <K> Map<String, String> getSettings(ConcurrentHashMap<K, CachedEntity> cache, K cacheKey) {
+        final CachedEntity cached = getCached(cache, cacheKey);
+        if (cached == null) return null;
+        if (cached.settings == null) return SettingsMap.EMPTY;
 
-        return this.getDefaultSetting(key);
+        return cached.settings;
+    }
+
+    @Override
+    @Nullable
+    public Map<String, String> getSettings(Guild guild) {
+        load(guild);
+        return getSettings(guildCache, guild.getIdLong());
+    }
+
+    @Override
+    @Nullable
+    public Map<String, String> getSettings(User user) {
+        load(user);
+        return getSettings(userCache, user.getIdLong());
+    }
+
+    @Override
+    @Nullable
+    public Map<String, String> getSettings(Member member) {
+        load(member);
+        return getSettings(guildMemberCache, Pair.of(member.getGuild().getIdLong(), member.getIdLong()));
     }
 
     @Override
     public void writeKey(Guild guild, String key, String value) {
-        writeKey(endpoint + "/api/bot/guilds/" + guild.getId() + "/", guildCache, guild.getIdLong(), key, value);
+        await(writeKey(endpoint + "/api/bot/guilds/" + guild.getId() + "/", guildCache, guildLoads, guild.getIdLong(), key, value));
     }
 
     @Override
     public void writeKey(Member member, String key, String value) {
-        writeKey(endpoint + "/api/bot/guilds/" + member.getGuild().getId() + "/members/" + member.getId() + "/", guildMemberCache, member.getGuild().getIdLong(), member.getIdLong(), key, value);
+        await(writeKey(endpoint + "/api/bot/guilds/" + member.getGuild().getId() + "/members/" + member.getId() + "/", guildMemberCache, guildMemberLoads, Pair.of(member.getGuild().getIdLong(), member.getIdLong()), key, value));
     }
 
     @Override
     public void writeKey(User user, String key, String value) {
-        writeKey(endpoint + "/api/bot/members/" + user.getId() + "/", userCache, user.getIdLong(), key, value);
+        await(writeKey(endpoint + "/api/bot/members/" + user.getId() + "/", userCache, userLoads, user.getIdLong(), key, value));
+    }
+
+    /**
+     * A running load of an entity, keeps the settings written since it started until its result has been cached
+     */
+    private static class Load extends CompletableFuture<Void> {
+        private final Map<String, String> writes = new LinkedHashMap<>();
+        private boolean landed = false;
+
+        private synchronized void written(String key, String value) {
+            // Once landed the write is applied to the cached entity instead
+            if (!this.landed) this.writes.put(key, value);
+        }
+
+        /**
+         * Applies the settings written since the load started to its result and caches it
+         *
+         * @param settings the loaded settings, null when the api doesn't know the entity
+         * @param cache    caches the settings
+         */
+        private synchronized void land(@Nullable SettingsMap settings, Consumer<SettingsMap> cache) {
+            this.landed = true;
+
+            for (Map.Entry<String, String> write : this.writes.entrySet()) {
+                settings = (settings != null ? settings : SettingsMap.EMPTY).with(write.getKey(), write.getValue());
+            }
+
+            cache.accept(settings);
+        }
+    }
+
+    private static class CachedEntity {
+        // Null when the api doesn't know the entity
+        @Nullable
+        private final SettingsMap settings;
+        // Reads after this start a refresh in the background
+        private final long refreshAt;
+        // Reads after this no longer use the entity
+        private final long expiresAt;
+
+        private CachedEntity(@Nullable SettingsMap settings, long refreshAt, long expiresAt) {
+            this.settings = settings;
+            this.refreshAt = refreshAt;
+            this.expiresAt = expiresAt;
+        }
     }
 }
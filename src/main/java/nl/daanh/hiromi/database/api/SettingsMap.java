@@ -0,0 +1,136 @@
+package nl.daanh.hiromi.database.api;
+
+import javax.annotation.Nullable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The settings of an entity as two sorted arrays, a lookup is a binary search over the keys. Nothing in it changes
+ * after it has been built so it can be cached and shared by every reader. Keys are interned, the same few setting
+ * names repeat across every cached entity. Values are not, balances, timezones and custom prefixes are mostly unique
+ * and would only grow the string table.
+ */
+public final class SettingsMap extends AbstractMap<String, String> {
+    public static final SettingsMap EMPTY = new SettingsMap(new String[0], new String[0]);
+
+    private final String[] keys;
+    private final String[] values;
+
+    private SettingsMap(String[] keys, String[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * @param keys   the keys of the settings, a later duplicate replaces an earlier one
+     * @param values the values of the settings in the order of the keys
+     * @return the settings
+     */
+    public static SettingsMap of(List<String> keys, List<String> values) {
+        if (keys.isEmpty()) return EMPTY;
+
+        final Integer[] order = new Integer[keys.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        // Stable, so of equal keys the last one ends up last
+        Arrays.sort(order, (a, b) -> keys.get(a).compareTo(keys.get(b)));
+
+        final String[] sortedKeys = new String[order.length];
+        final String[] sortedValues = new String[order.length];
+        int size = 0;
+        for (Integer index : order) {
+            final String key = keys.get(index);
+            if (size > 0 && sortedKeys[size - 1].equals(key)) size--;
+
+            sortedKeys[size] = key.intern();
+            sortedValues[size] = values.get(index);
+            size++;
+        }
+
+        return new SettingsMap(Arrays.copyOf(sortedKeys, size), Arrays.copyOf(sortedValues, size));
+    }
+
+    /**
+     * Creates a copy with a setting added or replaced, these settings are left untouched
+     *
+     * @param key   the key of the setting
+     * @param value the value of the setting
+     * @return the new settings
+     */
+    public SettingsMap with(String key, String value) {
+        final int index = Arrays.binarySearch(this.keys, key);
+        if (index >= 0) {
+            final String[] values = this.values.clone();
+            values[index] = value;
+            return new SettingsMap(this.keys, values);
+        }
+
+        final int insertAt = -index - 1;
+        final String[] keys = new String[this.keys.length + 1];
+        final String[] values = new String[this.values.length + 1];
+        System.arraycopy(this.keys, 0, keys, 0, insertAt);
+        System.arraycopy(this.values, 0, values, 0, insertAt);
+        keys[insertAt] = key.intern();
+        values[insertAt] = value;
+        System.arraycopy(this.keys, insertAt, keys, insertAt + 1, this.keys.length - insertAt);
+        System.arraycopy(this.values, insertAt, values, insertAt + 1, this.values.length - insertAt);
+
+        return new SettingsMap(keys, values);
+    }
+
+    @Override
+    @Nullable
+    public String get(Object key) {
+        if (!(key instanceof String)) return null;
+
+        final int index = Arrays.binarySearch(this.keys, key);
+        return index >= 0 ? this.values[index] : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && Arrays.binarySearch(this.keys, key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return this.keys.length;
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<String, String>> iterator() {
+                return new Iterator<>() {
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return this.index < keys.length;
+                    }
+
+                    @Override
+                    public Map.Entry<String, String> next() {
+                        if (!this.hasNext()) throw new NoSuchElementException();
+
+                        final int index = this.index++;
+                        return new SimpleImmutableEntry<>(keys[index], values[index]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        };
+    }
+}
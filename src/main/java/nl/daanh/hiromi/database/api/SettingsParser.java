@@ -0,0 +1,329 @@
+package nl.daanh.hiromi.database.api;
+
+import org.json.JSONException;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads api responses straight from the stream and keeps only the settings of the entities, everything else is
+ * skipped without being built. Malformed responses throw a {@link JSONException} like the org.json parser does.
+ */
+public class SettingsParser {
+    private final Reader reader;
+    private final char[] buffer = new char[1024];
+    private final StringBuilder builder = new StringBuilder();
+    private int position;
+    private int limit;
+
+    private SettingsParser(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Reads the response of a single entity, {@code {"data": {"settings": {...}}}}
+     *
+     * @param reader the body of the response
+     * @return the settings of the entity
+     * @throws IOException   when the response can't be read
+     * @throws JSONException when the response isn't a valid entity
+     */
+    public static SettingsMap readEntity(Reader reader) throws IOException {
+        final SettingsParser parser = new SettingsParser(reader);
+        SettingsMap settings = null;
+
+        parser.expect('{');
+        for (boolean first = true; parser.nextEntry('}', first); first = false) {
+            if (parser.readName().equals("data")) settings = parser.readEntityData();
+            else parser.skipValue();
+        }
+
+        if (settings == null) throw new JSONException("Response did not contain data");
+        return settings;
+    }
+
+    /**
+     * Reads the response of a batch, {@code {"data": [{"status": 200, "data": {"settings": {...}}}]}}
+     *
+     * @param reader the body of the response
+     * @return the results in the order of the response
+     * @throws IOException   when the response can't be read
+     * @throws JSONException when the response isn't a valid batch
+     */
+    public static List<BatchResult> readBatch(Reader reader) throws IOException {
+        final SettingsParser parser = new SettingsParser(reader);
+        List<BatchResult> results = null;
+
+        parser.expect('{');
+        for (boolean first = true; parser.nextEntry('}', first); first = false) {
+            if (!parser.readName().equals("data")) {
+                parser.skipValue();
+                continue;
+            }
+
+            results = new ArrayList<>();
+            parser.expect('[');
+            for (boolean firstResult = true; parser.nextEntry(']', firstResult); firstResult = false) {
+                results.add(parser.readBatchResult());
+            }
+        }
+
+        if (results == null) throw new JSONException("Response did not contain data");
+        return results;
+    }
+
+    private BatchResult readBatchResult() throws IOException {
+        int status = 0;
+        SettingsMap settings = null;
+
+        this.expect('{');
+        for (boolean first = true; this.nextEntry('}', first); first = false) {
+            switch (this.readName()) {
+                case "status":
+                    try {
+                        status = Integer.parseInt(this.readLiteral());
+                    } catch (NumberFormatException exception) {
+                        throw new JSONException("Status is not a number", exception);
+                    }
+                    break;
+                case "data":
+                    if (this.peek() == 'n') this.readLiteral();
+                    else settings = this.readEntityData();
+                    break;
+                default:
+                    this.skipValue();
+            }
+        }
+
+        return new BatchResult(status, settings);
+    }
+
+    private SettingsMap readEntityData() throws IOException {
+        SettingsMap settings = SettingsMap.EMPTY;
+
+        this.expect('{');
+        for (boolean first = true; this.nextEntry('}', first); first = false) {
+            if (this.readName().equals("settings")) settings = this.readSettings();
+            else this.skipValue();
+        }
+
+        return settings;
+    }
+
+    private SettingsMap readSettings() throws IOException {
+        final List<String> keys = new ArrayList<>();
+        final List<String> values = new ArrayList<>();
+
+        this.expect('{');
+        for (boolean first = true; this.nextEntry('}', first); first = false) {
+            final String key = this.readName();
+            final int c = this.peek();
+            if (c == '"') {
+                this.position++;
+                keys.add(key);
+                values.add(this.readString());
+            } else if (c == '{' || c == '[') {
+                // Settings are plain values, anything nested isn't one
+                this.skipValue();
+            } else {
+                final String literal = this.readLiteral();
+                if (literal.equals("null")) continue;
+
+                keys.add(key);
+                values.add(literal);
+            }
+        }
+
+        return SettingsMap.of(keys, values);
+    }
+
+    private boolean fill() throws IOException {
+        if (this.position < this.limit) return true;
+
+        final int read = this.reader.read(this.buffer);
+        if (read <= 0) return false;
+
+        this.position = 0;
+        this.limit = read;
+        return true;
+    }
+
+    /**
+     * @return the next character that isn't whitespace without consuming it, -1 at the end of the response
+     */
+    private int peek() throws IOException {
+        while (this.fill()) {
+            final char c = this.buffer[this.position];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') return c;
+
+            this.position++;
+        }
+
+        return -1;
+    }
+
+    private char read() throws IOException {
+        if (!this.fill()) throw new JSONException("Unexpected end of response");
+
+        return this.buffer[this.position++];
+    }
+
+    private void expect(char expected) throws IOException {
+        final int c = this.peek();
+        if (c != expected) throw new JSONException("Expected '" + expected + "' but found " + describe(c));
+
+        this.position++;
+    }
+
+    private static String describe(int c) {
+        return c == -1 ? "the end of the response" : "'" + (char) c + "'";
+    }
+
+    /**
+     * Moves to the next entry of an object or array
+     *
+     * @param close the character that closes the object or array
+     * @param first whether no entry has been read yet
+     * @return false once the object or array has been closed
+     */
+    private boolean nextEntry(char close, boolean first) throws IOException {
+        final int c = this.peek();
+        if (c == close) {
+            this.position++;
+            return false;
+        }
+
+        if (!first) {
+            if (c != ',') throw new JSONException("Expected ',' or '" + close + "' but found " + describe(c));
+            this.position++;
+        }
+
+        return true;
+    }
+
+    private String readName() throws IOException {
+        this.expect('"');
+        final String name = this.readString();
+        this.expect(':');
+
+        return name;
+    }
+
+    /**
+     * Reads a string of which the opening quote has been consumed
+     */
+    private String readString() throws IOException {
+        this.builder.setLength(0);
+        this.readString(true);
+
+        return this.builder.toString();
+    }
+
+    private void readString(boolean keep) throws IOException {
+        while (true) {
+            char c = this.read();
+            if (c == '"') return;
+
+            if (c == '\\') {
+                c = this.read();
+                switch (c) {
+                    case 'b':
+                        c = '\b';
+                        break;
+                    case 'f':
+                        c = '\f';
+                        break;
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 'r':
+                        c = '\r';
+                        break;
+                    case 't':
+                        c = '\t';
+                        break;
+                    case 'u':
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            final int digit = Character.digit(this.read(), 16);
+                            if (digit == -1) throw new JSONException("Illegal escape");
+                            code = code << 4 | digit;
+                        }
+                        c = (char) code;
+                        break;
+                    case '"':
+                    case '\\':
+                    case '/':
+                        break;
+                    default:
+                        throw new JSONException("Illegal escape");
+                }
+            }
+
+            if (keep) this.builder.append(c);
+        }
+    }
+
+    /**
+     * Reads a number, true, false or null as it's written
+     */
+    private String readLiteral() throws IOException {
+        this.builder.setLength(0);
+        while (this.fill()) {
+            final char c = this.buffer[this.position];
+            if (c == ',' || c == '}' || c == ']' || c == ' ' || c == '\n' || c == '\r' || c == '\t') break;
+
+            this.builder.append(c);
+            this.position++;
+        }
+
+        if (this.builder.length() == 0) throw new JSONException("Expected a value but found " + describe(this.peek()));
+        return this.builder.toString();
+    }
+
+    private void skipValue() throws IOException {
+        final int c = this.peek();
+        if (c == '"') {
+            this.position++;
+            this.readString(false);
+        } else if (c == '{' || c == '[') {
+            final char close = c == '{' ? '}' : ']';
+            this.position++;
+            for (boolean first = true; this.nextEntry(close, first); first = false) {
+                if (close == '}') this.readName();
+                this.skipValue();
+            }
+        } else {
+            this.readLiteral();
+        }
+    }
+
+    /**
+     * The result of one entity in a batch
+     */
+    public static class BatchResult {
+        private final int status;
+        @Nullable
+        private final SettingsMap settings;
+
+        private BatchResult(int status, @Nullable SettingsMap settings) {
+            this.status = status;
+            this.settings = settings;
+        }
+
+        public int getStatus() {
+            return this.status;
+        }
+
+        /**
+         * @return the settings of the entity, null when the result didn't contain the entity
+         */
+        @Nullable
+        public SettingsMap getSettings() {
+            return this.settings;
+        }
+    }
+}
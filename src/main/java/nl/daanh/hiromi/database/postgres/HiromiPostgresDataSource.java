@@ -15,7 +15,9 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class HiromiPostgresDataSource implements IDatabaseManager {
     private static final String DRIVER_NAME = "org.postgresql.Driver";
@@ -156,6 +158,50 @@ public class HiromiPostgresDataSource implements IDatabaseManager {
         return this.getDefaultSetting(key);
     }
 
+    private Map<String, String> readSettings(PreparedStatement preparedStatement) throws SQLException {
+        final Map<String, String> settings = new HashMap<>();
+        final ResultSet resultSet = preparedStatement.executeQuery();
+        while (resultSet.next()) {
+            settings.put(resultSet.getString("key"), resultSet.getString("value"));
+        }
+
+        return settings;
+    }
+
+    @Override
+    public Map<String, String> getSettings(Guild guild) {
+        try (final Connection connection = getConnection()) {
+            final PreparedStatement preparedStatement = connection.prepareStatement("select key, value from hiromi.guild_settings where id = ?");
+            preparedStatement.setLong(1, guild.getIdLong());
+            return this.readSettings(preparedStatement);
+        } catch (SQLException e) {
+            throw new HiromiDatabaseException("Something went wrong trying to fetch data from the database", e);
+        }
+    }
+
+    @Override
+    public Map<String, String> getSettings(Member member) {
+        try (final Connection connection = getConnection()) {
+            final PreparedStatement preparedStatement = connection.prepareStatement("select key, value from hiromi.guild_member_settings where guild_id = ? and member_id = ?");
+            preparedStatement.setLong(1, member.getGuild().getIdLong());
+            preparedStatement.setLong(2, member.getIdLong());
+            return this.readSettings(preparedStatement);
+        } catch (SQLException e) {
+            throw new HiromiDatabaseException("Something went wrong trying to fetch data from the database", e);
+        }
+    }
+
+    @Override
+    public Map<String, String> getSettings(User user) {
+        try (final Connection connection = getConnection()) {
+            final PreparedStatement preparedStatement = connection.prepareStatement("select key, value from hiromi.user_settings where id = ?");
+            preparedStatement.setLong(1, user.getIdLong());
+            return this.readSettings(preparedStatement);
+        } catch (SQLException e) {
+            throw new HiromiDatabaseException("Something went wrong trying to fetch data from the database", e);
+        }
+    }
+
     @Override
     public void writeKey(Guild guild, String key, String value) {
         try (final Connection connection = getConnection()) {
@@ -0,0 +1,226 @@
+package nl.daanh.hiromi.events;
+
+import nl.daanh.hiromi.models.commands.ButtonId;
+import nl.daanh.hiromi.models.commands.CommandDescriptor;
+
+import javax.annotation.Nullable;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Packs the command, subtype, author and arguments of a button into a signed component id.
+ * <p>
+ * Layout before base64url encoding: version (1), command index (2), author id (8), issued at (4, seconds since the
+ * discord epoch), subtype and arguments (each a length byte followed by utf-8) and the first 8 bytes of a HmacSHA256
+ * over everything before it. The key is derived from the secret and the command layout, so buttons created by a build
+ * with different commands fail verification instead of reaching the wrong command.
+ */
+public class ButtonIdCodec {
+    public static final int VERSION = 1;
+    // Discord allows at most 100 characters in a custom id, which is 75 bytes of base64
+    private static final int MAX_LENGTH = 100;
+    private static final int MAX_BYTES = MAX_LENGTH / 4 * 3;
+    private static final int HEADER_LENGTH = 1 + 2 + 8 + 4;
+    private static final int MAC_LENGTH = 8;
+    private static final long DISCORD_EPOCH_SECONDS = 1420070400L;
+    private static final char[] ENCODE = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+    private static final byte[] DECODE = new byte[128];
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        for (int i = 0; i < ENCODE.length; i++) {
+            DECODE[ENCODE[i]] = (byte) i;
+        }
+    }
+
+    private final SecretKeySpec key;
+    private final long maxAgeSeconds;
+    private final ThreadLocal<State> state = ThreadLocal.withInitial(this::createState);
+
+    /**
+     * @param secret        the secret buttons are signed with
+     * @param descriptors   the descriptors of the command index, in index order
+     * @param maxAgeSeconds how long a button stays valid, 0 for forever
+     */
+    public ButtonIdCodec(byte[] secret, CommandDescriptor[] descriptors, long maxAgeSeconds) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(secret);
+            for (final CommandDescriptor descriptor : descriptors) {
+                digest.update(descriptor.getCommand().getClass().getName().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+
+            this.key = new SecretKeySpec(digest.digest(), "HmacSHA256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+
+        this.maxAgeSeconds = maxAgeSeconds;
+    }
+
+    private State createState() {
+        try {
+            final Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(this.key);
+            return new State(mac);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private static int putString(byte[] buffer, int position, String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 255 || position + 1 + bytes.length + MAC_LENGTH > MAX_BYTES)
+            throw new IllegalArgumentException("The button data doesn't fit in a component id");
+
+        buffer[position++] = (byte) bytes.length;
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        return position + bytes.length;
+    }
+
+    /**
+     * Creates the signed component id of a button
+     *
+     * @param commandIndex the index of the command in the command index
+     * @param subtype      the subtype the command receives
+     * @param authorId     the id of the only user allowed to press the button
+     * @param args         the arguments the command receives
+     * @return the component id
+     * @throws IllegalArgumentException when the data doesn't fit in 100 characters
+     */
+    public String encode(int commandIndex, String subtype, long authorId, String... args) {
+        if (commandIndex < 0 || commandIndex > 0xFFFF) throw new IllegalArgumentException("Invalid command index " + commandIndex);
+
+        final byte[] buffer = new byte[MAX_BYTES];
+        final long issuedAt = System.currentTimeMillis() / 1000 - DISCORD_EPOCH_SECONDS;
+        int position = 0;
+        buffer[position++] = VERSION;
+        buffer[position++] = (byte) (commandIndex >>> 8);
+        buffer[position++] = (byte) commandIndex;
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (authorId >>> shift);
+        }
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (issuedAt >>> shift);
+        }
+
+        position = putString(buffer, position, subtype);
+        for (final String arg : args) {
+            position = putString(buffer, position, arg);
+        }
+
+        final State state = this.state.get();
+        state.mac.update(buffer, 0, position);
+        try {
+            state.mac.doFinal(state.digest, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+        System.arraycopy(state.digest, 0, buffer, position, MAC_LENGTH);
+        position += MAC_LENGTH;
+
+        final char[] chars = new char[(position * 4 + 2) / 3];
+        int c = 0;
+        for (int i = 0; i < position; i += 3) {
+            final int bits = (buffer[i] & 0xFF) << 16
+                    | (i + 1 < position ? (buffer[i + 1] & 0xFF) << 8 : 0)
+                    | (i + 2 < position ? buffer[i + 2] & 0xFF : 0);
+            for (int shift = 18; shift >= 0 && c < chars.length; shift -= 6) {
+                chars[c++] = ENCODE[(bits >>> shift) & 0x3F];
+            }
+        }
+
+        return new String(chars);
+    }
+
+    /**
+     * Decodes a component id, nothing but the signature is read before it has been verified
+     *
+     * @param componentId the component id of the pressed button
+     * @return the contents of the button, null when it's malformed, tampered with, of another version or expired
+     */
+    @Nullable
+    public ButtonId decode(String componentId) {
+        final int length = componentId.length();
+        if (length > MAX_LENGTH || length % 4 == 1) return null;
+
+        final State state = this.state.get();
+        final byte[] buffer = state.buffer;
+        int position = 0;
+        int bits = 0;
+        int bitCount = 0;
+        for (int i = 0; i < length; i++) {
+            final char ch = componentId.charAt(i);
+            final int value = ch < 128 ? DECODE[ch] : -1;
+            if (value < 0) return null;
+
+            bits = bits << 6 | value;
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                buffer[position++] = (byte) (bits >>> bitCount);
+            }
+        }
+
+        final int end = position - MAC_LENGTH;
+        if (end < HEADER_LENGTH + 1 || buffer[0] != VERSION) return null;
+
+        state.mac.update(buffer, 0, end);
+        try {
+            state.mac.doFinal(state.digest, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+
+        int difference = 0;
+        for (int i = 0; i < MAC_LENGTH; i++) {
+            difference |= state.digest[i] ^ buffer[end + i];
+        }
+        if (difference != 0) return null;
+
+        final int commandIndex = (buffer[1] & 0xFF) << 8 | buffer[2] & 0xFF;
+        long authorId = 0;
+        for (int i = 3; i < 11; i++) {
+            authorId = authorId << 8 | buffer[i] & 0xFF;
+        }
+        long issuedAt = 0;
+        for (int i = 11; i < 15; i++) {
+            issuedAt = issuedAt << 8 | buffer[i] & 0xFF;
+        }
+        issuedAt += DISCORD_EPOCH_SECONDS;
+        if (this.maxAgeSeconds > 0 && System.currentTimeMillis() / 1000 - issuedAt > this.maxAgeSeconds) return null;
+
+        // Signed by us so the strings are well formed, the bounds are checked regardless
+        position = HEADER_LENGTH;
+        String subtype = null;
+        final List<String> args = new ArrayList<>();
+        while (position < end) {
+            final int stringLength = buffer[position++] & 0xFF;
+            if (position + stringLength > end) return null;
+
+            final String value = new String(buffer, position, stringLength, StandardCharsets.UTF_8);
+            if (subtype == null) subtype = value;
+            else args.add(value);
+            position += stringLength;
+        }
+
+        return new ButtonId(commandIndex, subtype, authorId, issuedAt, args);
+    }
+
+    private static class State {
+        private final Mac mac;
+        private final byte[] buffer = new byte[MAX_BYTES];
+        private final byte[] digest = new byte[32];
+
+        private State(Mac mac) {
+            this.mac = mac;
+        }
+    }
+}
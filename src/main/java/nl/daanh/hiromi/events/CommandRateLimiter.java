@@ -0,0 +1,143 @@
+package nl.daanh.hiromi.events;
+
+import nl.daanh.hiromi.models.commands.CommandDescriptor;
+import nl.daanh.hiromi.models.commands.RateLimits;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Token buckets per command and user, channel and guild.
+ * <p>
+ * Every bucket is a single long in a fixed size table: a 16 bit tag of its key, the tokens in 1/256ths and the time of
+ * the last update in milliseconds. A bucket that is found with another tag is taken over as a full bucket, so colliding
+ * keys can only be limited less, never more.
+ */
+public class CommandRateLimiter {
+    private static final int TOKEN_SCALE = 256;
+    private static final int MAX_TOKENS = 0xFFFF / TOKEN_SCALE;
+    private static final long USER_SCOPE = 0x1L;
+    private static final long CHANNEL_SCOPE = 0x2L;
+    private static final long GUILD_SCOPE = 0x3L;
+
+    private final AtomicLongArray buckets;
+    private final int mask;
+    private final long epoch = System.nanoTime();
+
+    /**
+     * @param capacity the minimum amount of buckets, rounded up to a power of two
+     */
+    public CommandRateLimiter(int capacity) {
+        final int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.buckets = new AtomicLongArray(size);
+        this.mask = size - 1;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return value ^ (value >>> 33);
+    }
+
+    /**
+     * Takes a token from the bucket of a key, refilling it for the time that has passed
+     *
+     * @return false when the bucket is empty
+     */
+    private boolean tryAcquire(long key, int limit, long periodMillis) {
+        if (limit <= 0) return true;
+
+        final long hash = mix(key);
+        final int index = (int) hash & this.mask;
+        final long tag = hash >>> 48;
+        final long capacity = (long) Math.min(limit, MAX_TOKENS) * TOKEN_SCALE;
+        final long now = ((System.nanoTime() - this.epoch) / 1_000_000) & 0xFFFFFFFFL;
+
+        while (true) {
+            final long bucket = this.buckets.get(index);
+
+            long tokens = capacity;
+            if (bucket != 0 && (bucket >>> 48) == tag) {
+                // Unsigned difference, the 32 bit clock wraps around every 49 days
+                final long elapsed = (now - bucket) & 0xFFFFFFFFL;
+                tokens = Math.min(capacity, ((bucket >>> 32) & 0xFFFF) + elapsed * capacity / Math.max(1, periodMillis));
+            }
+
+            if (tokens < TOKEN_SCALE) return false;
+
+            final long updated = (tag << 48) | ((tokens - TOKEN_SCALE) << 32) | now;
+            if (this.buckets.compareAndSet(index, bucket, updated)) return true;
+        }
+    }
+
+    /**
+     * Gives back a token taken from the bucket of a key, nothing is given back when another key took the bucket over
+     */
+    private void release(long key, int limit) {
+        if (limit <= 0) return;
+
+        final long hash = mix(key);
+        final int index = (int) hash & this.mask;
+        final long tag = hash >>> 48;
+        final long capacity = (long) Math.min(limit, MAX_TOKENS) * TOKEN_SCALE;
+
+        while (true) {
+            final long bucket = this.buckets.get(index);
+            if (bucket == 0 || (bucket >>> 48) != tag) return;
+
+            final long tokens = Math.min(capacity, ((bucket >>> 32) & 0xFFFF) + TOKEN_SCALE);
+            final long updated = (bucket & ~(0xFFFFL << 32)) | (tokens << 32);
+            if (this.buckets.compareAndSet(index, bucket, updated)) return;
+        }
+    }
+
+    private static long key(CommandDescriptor descriptor, long scope, long id) {
+        return id * 31 + (((long) System.identityHashCode(descriptor) << 2) | scope);
+    }
+
+    /**
+     * Uses the rate limits of a command once, tokens are only spent when every limit allows it
+     *
+     * @param descriptor the command that is being used
+     * @param userId     the user that uses the command
+     * @param channelId  the channel the command is used in
+     * @param guildId    the guild the command is used in
+     * @return false when any of the limits has been reached
+     */
+    public boolean tryAcquire(CommandDescriptor descriptor, long userId, long channelId, long guildId) {
+        final RateLimits limits = descriptor.getRateLimits();
+        final long userKey = key(descriptor, USER_SCOPE, userId);
+        final long channelKey = key(descriptor, CHANNEL_SCOPE, channelId);
+
+        if (!this.tryAcquire(userKey, limits.getUser(), limits.getPeriodMillis())) return false;
+
+        // A busy channel or guild must not use up the budget of the user
+        if (!this.tryAcquire(channelKey, limits.getChannel(), limits.getPeriodMillis())) {
+            this.release(userKey, limits.getUser());
+            return false;
+        }
+
+        if (!this.tryAcquire(key(descriptor, GUILD_SCOPE, guildId), limits.getGuild(), limits.getPeriodMillis())) {
+            this.release(userKey, limits.getUser());
+            this.release(channelKey, limits.getChannel());
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Gives back the tokens of a use that didn't go through, so refused commands don't use up the shared limits of
+     * the channel and the guild
+     *
+     * @param descriptor the command that has been refused
+     * @param userId     the user that used the command
+     * @param channelId  the channel the command was used in
+     * @param guildId    the guild the command was used in
+     */
+    public void release(CommandDescriptor descriptor, long userId, long channelId, long guildId) {
+        final RateLimits limits = descriptor.getRateLimits();
+        this.release(key(descriptor, USER_SCOPE, userId), limits.getUser());
+        this.release(key(descriptor, CHANNEL_SCOPE, channelId), limits.getChannel());
+        this.release(key(descriptor, GUILD_SCOPE, guildId), limits.getGuild());
+    }
+}
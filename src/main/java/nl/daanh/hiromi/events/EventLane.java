@@ -0,0 +1,120 @@
+package nl.daanh.hiromi.events;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A single ordered lane of the event dispatcher, every task submitted to one lane runs in submission order.
+ * Lanes do not own a thread, a lane with pending tasks schedules a drain on the shared {@link WorkerPool}
+ * and at most one drain of a lane runs at any time.
+ * The queue of a lane is bounded, once it crosses the high watermark low priority events are shed until it
+ * has drained below the low watermark again. Essential events are only dropped when the queue is completely full,
+ * the submitting gateway thread never waits for a lane so one flooding guild can't stall its whole shard.
+ * Interactions skip the queue entirely, they are kept on a separate bounded priority queue that is always drained
+ * first. Interactions that don't fit are refused so they can be answered right away.
+ */
+public class EventLane {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventLane.class);
+    // Amount of tasks a drain runs before yielding the worker to other lanes
+    private static final int DRAIN_BATCH_SIZE = 64;
+
+    private final int index;
+    private final WorkerPool workerPool;
+    private final BlockingQueue<Runnable> queue;
+    private final BlockingQueue<Runnable> interactions;
+    private final int lowWatermark;
+    private final int highWatermark;
+    private final AtomicBoolean overloaded = new AtomicBoolean(false);
+    private final AtomicBoolean overflowing = new AtomicBoolean(false);
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    public EventLane(int index, WorkerPool workerPool, int capacity, int lowWatermark, int highWatermark, int interactionCapacity) {
+        this.index = index;
+        this.workerPool = workerPool;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.interactions = new ArrayBlockingQueue<>(Math.max(1, interactionCapacity));
+        this.highWatermark = Math.max(1, Math.min(highWatermark, capacity));
+        this.lowWatermark = Math.max(0, Math.min(lowWatermark, this.highWatermark - 1));
+    }
+
+    /**
+     * Queues a task on this lane
+     *
+     * @param task     the task to run
+     * @param priority the priority of the event the task belongs to
+     * @return false when the task has been shed or the lane was full
+     */
+    public boolean submit(Runnable task, EventPriority priority) {
+        if (priority == EventPriority.INTERACTION) {
+            if (!this.interactions.offer(task)) return false;
+
+            this.schedule();
+            return true;
+        }
+
+        final int depth = this.queue.size();
+        if (depth >= this.highWatermark && this.overloaded.compareAndSet(false, true))
+            LOGGER.warn("Event lane {} crossed the high watermark with {} queued events, shedding low priority events.", this.index, depth);
+
+        if (priority.isSheddable() && this.overloaded.get())
+            return false;
+
+        if (!this.queue.offer(task)) {
+            if (this.overflowing.compareAndSet(false, true))
+                LOGGER.error("Event lane {} is full, dropping essential events until it has drained.", this.index);
+            return false;
+        }
+
+        this.schedule();
+        return true;
+    }
+
+    private void schedule() {
+        if (this.scheduled.compareAndSet(false, true))
+            this.workerPool.execute(this::drain);
+    }
+
+    private void drain() {
+        for (int i = 0; i < DRAIN_BATCH_SIZE; i++) {
+            Runnable task = this.interactions.poll();
+            if (task == null) task = this.queue.poll();
+            if (task == null) break;
+
+            try {
+                task.run();
+            } catch (Throwable thr) {
+                LOGGER.error("Uncaught error on event lane {}.", this.index, thr);
+            }
+        }
+
+        this.checkRecovered();
+        this.scheduled.set(false);
+
+        // Tasks could have been queued after the last poll but before the flag was cleared
+        if (!this.interactions.isEmpty() || !this.queue.isEmpty())
+            this.schedule();
+    }
+
+    private void checkRecovered() {
+        if (!this.overloaded.get()) return;
+
+        final int depth = this.queue.size();
+        if (depth > this.lowWatermark) return;
+
+        this.overflowing.set(false);
+        if (this.overloaded.compareAndSet(true, false))
+            LOGGER.info("Event lane {} drained below the low watermark with {} queued events, accepting all events again.", this.index, depth);
+    }
+
+    public int getDepth() {
+        return this.queue.size() + this.interactions.size();
+    }
+
+    public boolean isOverloaded() {
+        return this.overloaded.get();
+    }
+}
@@ -0,0 +1,47 @@
+package nl.daanh.hiromi.events;
+
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.ReadyEvent;
+import net.dv8tion.jda.api.events.ReconnectedEvent;
+import net.dv8tion.jda.api.events.ShutdownEvent;
+import net.dv8tion.jda.api.events.guild.update.GuildUpdateOwnerEvent;
+import net.dv8tion.jda.api.events.interaction.GenericInteractionCreateEvent;
+import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
+import net.dv8tion.jda.api.events.role.RoleDeleteEvent;
+import net.dv8tion.jda.api.events.role.update.RoleUpdatePermissionsEvent;
+
+public enum EventPriority {
+    /**
+     * Slash commands and button clicks, these have to be acknowledged within 3 seconds
+     * so they always run before anything else queued on their lane and are never shed
+     */
+    INTERACTION,
+    /**
+     * Message commands, shard lifecycle events and permission changes, these are never shed
+     */
+    ESSENTIAL,
+    /**
+     * Everything else, these are the first to be shed when a lane is overloaded
+     */
+    LOW;
+
+    public static EventPriority of(GenericEvent event) {
+        if (event instanceof GenericInteractionCreateEvent)
+            return INTERACTION;
+
+        if (event instanceof GuildMessageReceivedEvent
+                || event instanceof ReadyEvent
+                || event instanceof ReconnectedEvent
+                || event instanceof ShutdownEvent
+                || event instanceof RoleUpdatePermissionsEvent
+                || event instanceof RoleDeleteEvent
+                || event instanceof GuildUpdateOwnerEvent)
+            return ESSENTIAL;
+
+        return LOW;
+    }
+
+    public boolean isSheddable() {
+        return this == LOW;
+    }
+}
@@ -0,0 +1,89 @@
+package nl.daanh.hiromi.events;
+
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.hooks.EventListener;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps event classes to the listeners that actually override a handler for them,
+ * so events that no listener is interested in never have to be dispatched.
+ */
+public class EventRoutingTable {
+    private static final EventListener[] NO_LISTENERS = new EventListener[0];
+
+    private final Map<EventListener, List<Class<?>>> handledEvents = new LinkedHashMap<>();
+    private final ConcurrentHashMap<Class<?>, EventListener[]> routes = new ConcurrentHashMap<>();
+
+    public EventRoutingTable(List<EventListener> listeners) {
+        for (EventListener listener : listeners) {
+            this.handledEvents.put(listener, getHandledEvents(listener));
+        }
+    }
+
+    /**
+     * Collects the event types a listener has overridden a {@link ListenerAdapter} handler for,
+     * listeners that are not an adapter receive every event.
+     *
+     * @param listener the listener to inspect
+     * @return the parameter types of every overridden handler
+     */
+    private static List<Class<?>> getHandledEvents(EventListener listener) {
+        final List<Class<?>> handled = new ArrayList<>();
+        if (!(listener instanceof ListenerAdapter)) {
+            handled.add(GenericEvent.class);
+            return handled;
+        }
+
+        for (Class<?> type = listener.getClass(); type != ListenerAdapter.class; type = type.getSuperclass()) {
+            for (Method method : type.getDeclaredMethods()) {
+                if (!method.getName().startsWith("on") || method.getParameterCount() != 1) continue;
+
+                final Class<?> parameter = method.getParameterTypes()[0];
+                if (!GenericEvent.class.isAssignableFrom(parameter)) continue;
+
+                try {
+                    ListenerAdapter.class.getMethod(method.getName(), parameter);
+                    if (!handled.contains(parameter)) handled.add(parameter);
+                } catch (NoSuchMethodException ignored) {
+                    // Not a handler of the adapter, just a method that happens to look like one
+                }
+            }
+        }
+
+        return handled;
+    }
+
+    private EventListener[] resolve(Class<?> eventClass) {
+        final List<EventListener> listeners = new ArrayList<>();
+        this.handledEvents.forEach((listener, handled) -> {
+            for (Class<?> parameter : handled) {
+                if (parameter.isAssignableFrom(eventClass)) {
+                    listeners.add(listener);
+                    return;
+                }
+            }
+        });
+
+        return listeners.isEmpty() ? NO_LISTENERS : listeners.toArray(NO_LISTENERS);
+    }
+
+    /**
+     * Gets the listeners interested in an event, resolved once per event class
+     *
+     * @param eventClass the class of the event that has been received
+     * @return the listeners to call, empty when nobody consumes the event
+     */
+    public EventListener[] getListeners(Class<? extends GenericEvent> eventClass) {
+        final EventListener[] listeners = this.routes.get(eventClass);
+        if (listeners != null) return listeners;
+
+        return this.routes.computeIfAbsent(eventClass, this::resolve);
+    }
+}
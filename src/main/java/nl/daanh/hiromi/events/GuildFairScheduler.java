@@ -0,0 +1,215 @@
+package nl.daanh.hiromi.events;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Schedules commands fairly across guilds so a single busy guild can not starve the others.
+ * Every guild has its own queue and a budget of queued plus running commands, commands over budget are throttled.
+ * Guilds with pending commands take turns in round robin order, one command per turn, while the total amount of
+ * running commands stays below the configured concurrency. A command keeps its slot until its future completes.
+ */
+public class GuildFairScheduler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GuildFairScheduler.class);
+    // Guilds with a throttle count, the least throttled one makes room for a newly throttled guild
+    private static final int MAX_THROTTLED_GUILDS = 1000;
+
+    private static class GuildQueue {
+        private final long guildId;
+        private final ArrayDeque<Supplier<CompletableFuture<?>>> tasks = new ArrayDeque<>();
+        private int running = 0;
+        private boolean ready = false;
+        private boolean throttling = false;
+
+        private GuildQueue(long guildId) {
+            this.guildId = guildId;
+        }
+    }
+
+    private final Executor executor;
+    private final int concurrency;
+    private final int guildConcurrency;
+    private final int guildBudget;
+
+    private final Object lock = new Object();
+    private final HashMap<Long, GuildQueue> guilds = new HashMap<>();
+    private final ArrayDeque<GuildQueue> ready = new ArrayDeque<>();
+    private int running = 0;
+    private final HashMap<Long, Long> throttleCounts = new HashMap<>();
+
+    /**
+     * @param executor         the executor commands run on
+     * @param concurrency      the maximum amount of commands running at once across all guilds
+     * @param guildConcurrency the maximum amount of commands of one guild running at once
+     * @param guildBudget      the maximum amount of queued and running commands of one guild
+     */
+    public GuildFairScheduler(Executor executor, int concurrency, int guildConcurrency, int guildBudget) {
+        this.executor = executor;
+        this.concurrency = Math.max(1, concurrency);
+        this.guildConcurrency = Math.max(1, guildConcurrency);
+        this.guildBudget = Math.max(this.guildConcurrency, guildBudget);
+    }
+
+    /**
+     * Queues a command of a guild
+     *
+     * @param guildId the guild the command has been invoked in
+     * @param task    runs the command, the future completes once the command has been handled
+     * @return false when the guild is over its budget and the command has been throttled
+     */
+    public boolean submit(long guildId, Supplier<CompletableFuture<?>> task) {
+        final List<Runnable> startable;
+
+        synchronized (this.lock) {
+            final GuildQueue queue = this.guilds.computeIfAbsent(guildId, GuildQueue::new);
+            if (queue.running + queue.tasks.size() >= this.guildBudget) {
+                if (!queue.throttling) {
+                    queue.throttling = true;
+                    LOGGER.warn("Guild {} exceeded its budget of {} commands, throttling.", guildId, this.guildBudget);
+                }
+
+                this.countThrottled(guildId);
+                return false;
+            }
+
+            queue.tasks.add(task);
+            this.markReady(queue);
+            startable = this.poll();
+        }
+
+        this.start(startable);
+        return true;
+    }
+
+    /**
+     * Counts a throttled command of a guild, must hold the lock
+     */
+    private void countThrottled(long guildId) {
+        if (!this.throttleCounts.containsKey(guildId) && this.throttleCounts.size() >= MAX_THROTTLED_GUILDS) {
+            Long leastThrottled = null;
+            long leastCount = Long.MAX_VALUE;
+            for (Map.Entry<Long, Long> entry : this.throttleCounts.entrySet()) {
+                if (entry.getValue() < leastCount) {
+                    leastThrottled = entry.getKey();
+                    leastCount = entry.getValue();
+                }
+            }
+
+            this.throttleCounts.remove(leastThrottled);
+        }
+
+        this.throttleCounts.merge(guildId, 1L, Long::sum);
+    }
+
+    private void markReady(GuildQueue queue) {
+        if (!queue.ready && !queue.tasks.isEmpty() && queue.running < this.guildConcurrency) {
+            queue.ready = true;
+            this.ready.add(queue);
+        }
+    }
+
+    /**
+     * Takes one command from every guild in turn until the concurrency limit is reached, must hold the lock
+     *
+     * @return the commands that can be started
+     */
+    private List<Runnable> poll() {
+        List<Runnable> startable = null;
+
+        while (this.running < this.concurrency && !this.ready.isEmpty()) {
+            final GuildQueue queue = this.ready.poll();
+            queue.ready = false;
+
+            final Supplier<CompletableFuture<?>> task = queue.tasks.poll();
+            if (task == null) continue;
+
+            queue.running++;
+            this.running++;
+            // Guilds with more work go to the back of the line
+            this.markReady(queue);
+
+            if (startable == null) startable = new ArrayList<>();
+            startable.add(() -> {
+                CompletableFuture<?> future = null;
+                try {
+                    future = task.get();
+                } finally {
+                    // An asynchronous command is still running after its task returned
+                    if (future == null) this.complete(queue);
+                    else future.whenComplete((result, throwable) -> this.complete(queue));
+                }
+            });
+        }
+
+        return startable;
+    }
+
+    private void start(List<Runnable> startable) {
+        if (startable == null) return;
+
+        for (Runnable task : startable) {
+            this.executor.execute(task);
+        }
+    }
+
+    private void complete(GuildQueue queue) {
+        final List<Runnable> startable;
+
+        synchronized (this.lock) {
+            queue.running--;
+            this.running--;
+
+            if (queue.running == 0 && queue.tasks.isEmpty()) {
+                if (queue.throttling)
+                    LOGGER.info("Guild {} has drained its command queue, no longer throttling.", queue.guildId);
+                this.guilds.remove(queue.guildId);
+            } else {
+                this.markReady(queue);
+            }
+
+            startable = this.poll();
+        }
+
+        this.start(startable);
+    }
+
+    /**
+     * The amount of queued and running commands of every guild with pending work
+     *
+     * @return the queue depth per guild id
+     */
+    public Map<Long, Integer> getQueueDepths() {
+        final Map<Long, Integer> depths = new HashMap<>();
+        synchronized (this.lock) {
+            this.guilds.forEach((guildId, queue) -> depths.put(guildId, queue.running + queue.tasks.size()));
+        }
+
+        return depths;
+    }
+
+    /**
+     * The amount of throttled commands since startup of the most throttled guilds
+     *
+     * @return the throttle count per guild id
+     */
+    public Map<Long, Long> getThrottleCounts() {
+        synchronized (this.lock) {
+            return new HashMap<>(this.throttleCounts);
+        }
+    }
+
+    public int getRunning() {
+        synchronized (this.lock) {
+            return this.running;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package nl.daanh.hiromi.events;
+
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the computed guild permissions of members. Entries are tied to the roles the member had when they
+ * were computed, role and owner changes drop every entry of the guild.
+ */
+public class PermissionCache {
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<Long, Entry>> guilds = new ConcurrentHashMap<>();
+    private final int maxEntriesPerGuild;
+
+    public PermissionCache(int maxEntriesPerGuild) {
+        this.maxEntriesPerGuild = Math.max(1, maxEntriesPerGuild);
+    }
+
+    /**
+     * Fingerprints the roles of a member, a member that gained or lost a role no longer matches its entries
+     */
+    private static long getRoleHash(Member member) {
+        final List<Role> roles = member.getRoles();
+        long hash = roles.size();
+        for (int i = 0; i < roles.size(); i++) {
+            hash = (hash ^ roles.get(i).getIdLong()) * 0x9E3779B97F4A7C15L;
+        }
+
+        return hash;
+    }
+
+    private static long computePermissions(Member member) {
+        final long permissions = Permission.getRaw(member.getPermissions());
+        if ((permissions & Permission.ADMINISTRATOR.getRawValue()) != 0) return Permission.ALL_PERMISSIONS;
+
+        return permissions;
+    }
+
+    /**
+     * Gets the guild permissions of a member with administrator expanded to every permission
+     *
+     * @param member the member to get the permissions of
+     * @return the raw permissions
+     */
+    public long getPermissions(Member member) {
+        final ConcurrentHashMap<Long, Entry> entries = this.guilds.computeIfAbsent(member.getGuild().getIdLong(), (guildId) -> new ConcurrentHashMap<>());
+        final long key = member.getIdLong();
+        final long roleHash = getRoleHash(member);
+
+        final Entry entry = entries.get(key);
+        if (entry != null && entry.roleHash == roleHash) return entry.permissions;
+
+        // Read the map before computing, an invalidation that lands in between replaces it so the result is never kept
+        final long permissions = computePermissions(member);
+        if (entries.size() >= this.maxEntriesPerGuild) entries.clear();
+        entries.put(key, new Entry(roleHash, permissions));
+        return permissions;
+    }
+
+    /**
+     * Drops every permission computed in a guild
+     *
+     * @param guildId the id of the guild
+     */
+    public void invalidate(long guildId) {
+        this.guilds.remove(guildId);
+    }
+
+    private static class Entry {
+        private final long roleHash;
+        private final long permissions;
+
+        private Entry(long roleHash, long permissions) {
+            this.roleHash = roleHash;
+            this.permissions = permissions;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package nl.daanh.hiromi.events;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The shared, bounded pool every event lane and listener runs its work on.
+ * Threads blocking in a managed way are compensated for up to the maximum pool size, after that the pool
+ * keeps running with fewer runnable threads instead of creating more.
+ */
+public class WorkerPool implements Executor {
+    private final ForkJoinPool pool;
+
+    public WorkerPool(int parallelism, int maxThreads) {
+        final int threads = Math.max(1, parallelism);
+        this.pool = new ForkJoinPool(
+                threads,
+                (pool) -> {
+                    final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName("Hiromi-Worker-" + thread.getPoolIndex());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                null,
+                true,
+                0,
+                Math.max(threads, maxThreads),
+                1,
+                (pool) -> true,
+                60,
+                TimeUnit.SECONDS
+        );
+    }
+
+    @Override
+    public void execute(@NotNull Runnable task) {
+        this.pool.execute(task);
+    }
+
+    public int getParallelism() {
+        return this.pool.getParallelism();
+    }
+
+    public int getPoolSize() {
+        return this.pool.getPoolSize();
+    }
+
+    public int getActiveCount() {
+        return this.pool.getActiveThreadCount();
+    }
+
+    public long getQueueDepth() {
+        return this.pool.getQueuedSubmissionCount() + this.pool.getQueuedTaskCount();
+    }
+
+    public long getStealCount() {
+        return this.pool.getStealCount();
+    }
+
+    public void shutdown() {
+        this.pool.shutdown();
+    }
+}
@@ -0,0 +1,26 @@
+package nl.daanh.hiromi.listeners;
+
+import net.dv8tion.jda.api.events.ReadyEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import nl.daanh.hiromi.CommandRegistrationService;
+import nl.daanh.hiromi.events.WorkerPool;
+import org.jetbrains.annotations.NotNull;
+
+public class CommandRegistrationListener extends BaseListener {
+    private final CommandRegistrationService registrationService;
+
+    public CommandRegistrationListener(WorkerPool workerPool, CommandRegistrationService registrationService) {
+        super(workerPool);
+        this.registrationService = registrationService;
+    }
+
+    @Override
+    public void onReady(@NotNull ReadyEvent event) {
+        this.registrationService.rollout(event.getJDA());
+    }
+
+    @Override
+    public void onGuildLeave(@NotNull GuildLeaveEvent event) {
+        this.registrationService.forget(event.getGuild());
+    }
+}
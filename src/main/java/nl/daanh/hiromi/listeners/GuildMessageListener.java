@@ -6,7 +6,7 @@ import net.dv8tion.jda.api.events.message.guild.GuildMessageUpdateEvent;
 import nl.daanh.hiromi.CommandManager;
 import nl.daanh.hiromi.DeveloperOverrides;
 import nl.daanh.hiromi.Hiromi;
-import nl.daanh.hiromi.database.IDatabaseManager;
+import nl.daanh.hiromi.events.WorkerPool;
 import nl.daanh.hiromi.models.configuration.IHiromiConfig;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
@@ -16,7 +16,8 @@ public class GuildMessageListener extends BaseListener {
     private static final Logger LOGGER = LoggerFactory.getLogger(GuildMessageListener.class);
     private final CommandManager commandManager;
 
-    public GuildMessageListener(CommandManager commandManager) {
+    public GuildMessageListener(WorkerPool workerPool, CommandManager commandManager) {
+        super(workerPool);
         this.commandManager = commandManager;
     }
 
@@ -28,9 +29,9 @@ public class GuildMessageListener extends BaseListener {
 
         if (event.isWebhookMessage() || event.getAuthor().isBot()) return;
         final IHiromiConfig config = Hiromi.getConfig();
-        final IDatabaseManager databaseManager = config.getDatabaseManager();
 
-        final String prefix = databaseManager.getPrefix(event.getGuild()) != null ? databaseManager.getPrefix(event.getGuild()) : config.getGlobalPrefix();
+        final String prefix = config.getPrefixTable().getCommandPrefix(event.getGuild(), event.getMessage().getContentRaw());
+        if (prefix == null) return;
         this.commandManager.handle(event, prefix);
     }
 
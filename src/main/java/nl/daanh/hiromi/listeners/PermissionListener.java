@@ -0,0 +1,42 @@
+package nl.daanh.hiromi.listeners;
+
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.update.GuildUpdateOwnerEvent;
+import net.dv8tion.jda.api.events.role.RoleDeleteEvent;
+import net.dv8tion.jda.api.events.role.update.RoleUpdatePermissionsEvent;
+import nl.daanh.hiromi.events.PermissionCache;
+import nl.daanh.hiromi.events.WorkerPool;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Drops the cached permissions of a guild whenever something its permissions are computed from changes,
+ * role changes of a single member are picked up by the cache itself
+ */
+public class PermissionListener extends BaseListener {
+    private final PermissionCache permissionCache;
+
+    public PermissionListener(WorkerPool workerPool, PermissionCache permissionCache) {
+        super(workerPool);
+        this.permissionCache = permissionCache;
+    }
+
+    @Override
+    public void onRoleUpdatePermissions(@NotNull RoleUpdatePermissionsEvent event) {
+        this.permissionCache.invalidate(event.getGuild().getIdLong());
+    }
+
+    @Override
+    public void onRoleDelete(@NotNull RoleDeleteEvent event) {
+        this.permissionCache.invalidate(event.getGuild().getIdLong());
+    }
+
+    @Override
+    public void onGuildUpdateOwner(@NotNull GuildUpdateOwnerEvent event) {
+        this.permissionCache.invalidate(event.getGuild().getIdLong());
+    }
+
+    @Override
+    public void onGuildLeave(@NotNull GuildLeaveEvent event) {
+        this.permissionCache.invalidate(event.getGuild().getIdLong());
+    }
+}
@@ -4,9 +4,14 @@ import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.events.ReadyEvent;
 import net.dv8tion.jda.api.events.ReconnectedEvent;
 import net.dv8tion.jda.api.events.ShutdownEvent;
+import nl.daanh.hiromi.events.WorkerPool;
 import org.jetbrains.annotations.NotNull;
 
 public class ReadyShutdownListener extends BaseListener {
+    public ReadyShutdownListener(WorkerPool workerPool) {
+        super(workerPool);
+    }
+
     @Override
     public void onReady(@NotNull ReadyEvent event) {
         final JDA jda = event.getJDA();
@@ -0,0 +1,73 @@
+package nl.daanh.hiromi.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock free latency histogram with log-linear buckets, similar to an HDR histogram.
+ * Values below 64 nanoseconds are counted exactly, every power of two above that is split
+ * into 32 linear buckets which keeps the relative error of a percentile below ~3%.
+ * Values above roughly 68 seconds are clamped into the last bucket.
+ */
+public class LatencyHistogram {
+    private static final int LINEAR_BUCKETS = 64;
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final long MAX_TRACKABLE = (1L << 36) - 1;
+    private static final int BUCKET_COUNT = indexOf(MAX_TRACKABLE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+
+    private static int indexOf(long value) {
+        if (value < LINEAR_BUCKETS) return (int) Math.max(0, value);
+
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        final int mantissa = (int) (value >>> shift) - SUB_BUCKETS;
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + mantissa;
+    }
+
+    /**
+     * The highest value that ends up in a bucket
+     *
+     * @param index the index of the bucket
+     * @return the upper bound of the bucket in nanoseconds
+     */
+    private static long highestValueOf(int index) {
+        if (index < LINEAR_BUCKETS) return index;
+
+        final int offset = index - LINEAR_BUCKETS;
+        final int shift = offset / SUB_BUCKETS + 1;
+        final long mantissa = offset % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    public void record(long nanos) {
+        this.counts.incrementAndGet(indexOf(Math.min(nanos, MAX_TRACKABLE)));
+        this.totalCount.increment();
+    }
+
+    public long getCount() {
+        return this.totalCount.sum();
+    }
+
+    /**
+     * Gets the value below which the given fraction of all recorded values fall
+     *
+     * @param percentile the fraction between 0 and 1, for example 0.99
+     * @return the value in nanoseconds, 0 when nothing has been recorded yet
+     */
+    public long getValueAtPercentile(double percentile) {
+        final long total = this.getCount();
+        if (total == 0) return 0;
+
+        final long target = Math.max(1, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += this.counts.get(i);
+            if (seen >= target) return highestValueOf(i);
+        }
+
+        return MAX_TRACKABLE;
+    }
+}
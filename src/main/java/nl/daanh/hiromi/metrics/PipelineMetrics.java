@@ -0,0 +1,173 @@
+package nl.daanh.hiromi.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histograms of every stage an event passes through, recorded per event type or command invoke.
+ * <p>
+ * Durations are recorded per interval, at the end of an interval its histograms are reported and replaced by fresh
+ * ones. Percentiles always describe the last interval, a slowdown doesn't disappear in hours of older samples.
+ */
+public class PipelineMetrics {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PipelineMetrics.class);
+    private static final String TOTAL = "*";
+    // Used when the reports are not logged, the histograms are still replaced every interval
+    private static final int DEFAULT_INTERVAL = 300;
+    private static volatile Map<Stage, ConcurrentHashMap<String, LatencyHistogram>> histograms = createHistograms();
+    // The histograms of the last completed interval, null until the first interval completes
+    private static volatile Map<Stage, ConcurrentHashMap<String, LatencyHistogram>> completed;
+    private static ScheduledExecutorService reporter;
+    private static int intervalSeconds = DEFAULT_INTERVAL;
+
+    private static Map<Stage, ConcurrentHashMap<String, LatencyHistogram>> createHistograms() {
+        final Map<Stage, ConcurrentHashMap<String, LatencyHistogram>> histograms = new EnumMap<>(Stage.class);
+        for (Stage stage : Stage.values()) {
+            histograms.put(stage, new ConcurrentHashMap<>());
+        }
+
+        return histograms;
+    }
+
+    public enum Stage {
+        /**
+         * Time an event spent queued on its event lane, per event type
+         */
+        QUEUE_WAIT("Queue wait"),
+        /**
+         * Time the listeners took to handle an event, per event type
+         */
+        DISPATCH("Dispatch"),
+        /**
+         * Time a command spent queued in the guild scheduler, per command invoke
+         */
+        SCHEDULER_WAIT("Scheduler wait"),
+        /**
+         * Time the category and permission checks of a command took, per command invoke
+         */
+        CHECKS("Checks"),
+        /**
+         * Time a single data source call took, per entity and setting
+         */
+        DATABASE("Database"),
+        /**
+         * Time the handler of a command took, per command invoke
+         */
+        HANDLER("Handler");
+
+        private final String name;
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static LatencyHistogram getHistogram(Stage stage, String key) {
+        final ConcurrentHashMap<String, LatencyHistogram> stageHistograms = histograms.get(stage);
+        final LatencyHistogram histogram = stageHistograms.get(key);
+        if (histogram != null) return histogram;
+
+        return stageHistograms.computeIfAbsent(key, (k) -> new LatencyHistogram());
+    }
+
+    /**
+     * Records the duration of a stage
+     *
+     * @param stage the stage that has been measured
+     * @param key   the event type, command invoke or setting the duration belongs to
+     * @param nanos the duration in nanoseconds
+     */
+    public static void record(Stage stage, String key, long nanos) {
+        getHistogram(stage, key).record(nanos);
+        getHistogram(stage, TOTAL).record(nanos);
+    }
+
+    /**
+     * Gets the histogram of all durations of a stage combined in the last completed interval, until the first interval
+     * completes the durations recorded so far
+     *
+     * @param stage the stage to get the histogram of
+     * @return the combined histogram
+     */
+    public static LatencyHistogram getTotal(Stage stage) {
+        final Map<Stage, ConcurrentHashMap<String, LatencyHistogram>> interval = completed;
+        if (interval == null) return getHistogram(stage, TOTAL);
+
+        final LatencyHistogram histogram = interval.get(stage).get(TOTAL);
+        return histogram != null ? histogram : new LatencyHistogram();
+    }
+
+    /**
+     * @return the length of an interval in seconds
+     */
+    public static synchronized int getIntervalSeconds() {
+        return intervalSeconds;
+    }
+
+    /**
+     * Formats the p50, p99 and p999 of a histogram
+     *
+     * @param histogram the histogram to format
+     * @return the formatted percentiles
+     */
+    public static String formatPercentiles(LatencyHistogram histogram) {
+        return String.format("p50 %s, p99 %s, p999 %s (%s samples)",
+                formatNanos(histogram.getValueAtPercentile(0.5)),
+                formatNanos(histogram.getValueAtPercentile(0.99)),
+                formatNanos(histogram.getValueAtPercentile(0.999)),
+                histogram.getCount()
+        );
+    }
+
+    private static String formatNanos(long nanos) {
+        return String.format("%.2fms", nanos / 1_000_000d);
+    }
+
+    /**
+     * Completes the current interval and starts recording into fresh histograms
+     *
+     * @param log whether to log the percentiles of the completed interval
+     */
+    private static void rotate(boolean log) {
+        final Map<Stage, ConcurrentHashMap<String, LatencyHistogram>> interval = histograms;
+        histograms = createHistograms();
+        completed = interval;
+
+        if (!log) return;
+        for (Stage stage : Stage.values()) {
+            final Map<String, LatencyHistogram> sorted = new TreeMap<>(interval.get(stage));
+            sorted.forEach((key, histogram) -> LOGGER.info("{} [{}]: {}", stage.getName(), key, formatPercentiles(histogram)));
+        }
+    }
+
+    /**
+     * Periodically completes the current interval and logs the percentiles of every histogram in it
+     *
+     * @param logInterval the interval between reports in seconds, 0 or lower only disables logging
+     */
+    public static synchronized void startReporting(int logInterval) {
+        if (reporter != null) return;
+
+        final boolean log = logInterval > 0;
+        intervalSeconds = log ? logInterval : DEFAULT_INTERVAL;
+        reporter = Executors.newSingleThreadScheduledExecutor((r) -> {
+            final Thread thread = new Thread(r, "Hiromi-Metrics-Reporter");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> rotate(log), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+}
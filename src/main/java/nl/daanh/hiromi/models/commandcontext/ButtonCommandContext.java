@@ -6,21 +6,23 @@ import net.dv8tion.jda.api.events.interaction.ButtonClickEvent;
 import net.dv8tion.jda.api.managers.AudioManager;
 import net.dv8tion.jda.api.requests.restaction.WebhookMessageUpdateAction;
 import net.dv8tion.jda.api.sharding.ShardManager;
+import nl.daanh.hiromi.database.SettingsSnapshot;
 import nl.daanh.hiromi.models.configuration.IHiromiConfig;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Arrays;
 import java.util.List;
 
 public class ButtonCommandContext implements IButtonCommandContext {
     private final ButtonClickEvent event;
     private final IHiromiConfig configuration;
+    private final SettingsSnapshot settings;
     private final List<String> args;
 
-    public ButtonCommandContext(ButtonClickEvent event, String[] data, IHiromiConfig configuration) {
+    public ButtonCommandContext(ButtonClickEvent event, List<String> args, IHiromiConfig configuration) {
         this.event = event;
         this.configuration = configuration;
-        this.args = Arrays.asList(data).subList(3, data.length);
+        this.settings = new SettingsSnapshot(configuration.getDatabaseManager());
+        this.args = args;
     }
 
     @Override
@@ -40,6 +42,11 @@ public class ButtonCommandContext implements IButtonCommandContext {
         return this.configuration;
     }
 
+    @Override
+    public SettingsSnapshot getSettings() {
+        return this.settings;
+    }
+
     @Override
     public ButtonClickEvent getEvent() {
         return this.event;
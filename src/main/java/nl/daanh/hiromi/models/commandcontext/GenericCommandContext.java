@@ -6,16 +6,22 @@ import net.dv8tion.jda.api.events.Event;
 import net.dv8tion.jda.api.events.interaction.SlashCommandEvent;
 import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
 import net.dv8tion.jda.api.managers.AudioManager;
+import net.dv8tion.jda.api.requests.RestAction;
 import net.dv8tion.jda.api.sharding.ShardManager;
+import nl.daanh.hiromi.database.SettingsSnapshot;
 import nl.daanh.hiromi.models.configuration.IHiromiConfig;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.concurrent.CompletableFuture;
+
 public class GenericCommandContext implements IGenericCommandContext {
     private final Guild guild;
     private final TextChannel textChannel;
     private final Member member;
     private final Event event;
     private final IHiromiConfig configuration;
+    private final SettingsSnapshot settings;
+    private final InteractionResponder responder;
 
     public GenericCommandContext(GuildMessageReceivedEvent event, IHiromiConfig configuration) {
         this.guild = event.getGuild();
@@ -23,6 +29,8 @@ public class GenericCommandContext implements IGenericCommandContext {
         this.member = event.getMember();
         this.event = event;
         this.configuration = configuration;
+        this.settings = new SettingsSnapshot(configuration.getDatabaseManager());
+        this.responder = null;
     }
 
 
@@ -32,6 +40,8 @@ public class GenericCommandContext implements IGenericCommandContext {
         this.member = event.getMember();
         this.event = event;
         this.configuration = configuration;
+        this.settings = new SettingsSnapshot(configuration.getDatabaseManager());
+        this.responder = new InteractionResponder(event);
     }
 
     @Override
@@ -39,22 +49,31 @@ public class GenericCommandContext implements IGenericCommandContext {
         return this.configuration;
     }
 
+    @Override
+    public SettingsSnapshot getSettings() {
+        return this.settings;
+    }
+
+    private RestAction<?> replyAction(@NotNull String content) {
+        if (this.responder != null) return this.responder.reply(content, true);
+
+        return this.getChannel().sendMessage(content);
+    }
+
     @Override
     public void reply(@NotNull String content) {
-        if (this.event instanceof SlashCommandEvent) {
-            SlashCommandEvent e = (SlashCommandEvent) this.event;
-            e.reply(content).setEphemeral(true).queue();
-            return;
-        }
+        this.replyAction(content).queue();
+    }
 
-        this.getChannel().sendMessage(content).queue();
+    @Override
+    public CompletableFuture<?> replyAsync(@NotNull String content) {
+        return this.replyAction(content).submit();
     }
 
     @Override
     public void reply(@NotNull Message content) {
-        if (this.event instanceof SlashCommandEvent) {
-            SlashCommandEvent e = (SlashCommandEvent) this.event;
-            e.reply(content).queue();
+        if (this.responder != null) {
+            this.responder.reply(content, false).queue();
             return;
         }
 
@@ -63,15 +82,19 @@ public class GenericCommandContext implements IGenericCommandContext {
 
     @Override
     public void replyInstant(String content) {
-        if (this.event instanceof SlashCommandEvent) {
-            SlashCommandEvent e = (SlashCommandEvent) this.event;
-            e.reply(content).setEphemeral(true).queue();
+        if (this.responder != null) {
+            this.responder.reply(content, true).queue();
             return;
         }
 
         this.getChannel().sendMessage(content).queue();
     }
 
+    @Override
+    public void deferReplyIfPending() {
+        if (this.responder != null) this.responder.deferIfPending();
+    }
+
     @Override
     public Guild getGuild() {
         return this.guild;
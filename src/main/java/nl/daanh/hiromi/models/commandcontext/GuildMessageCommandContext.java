@@ -6,6 +6,7 @@ import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
 import net.dv8tion.jda.api.managers.AudioManager;
 import net.dv8tion.jda.api.requests.restaction.MessageAction;
 import net.dv8tion.jda.api.sharding.ShardManager;
+import nl.daanh.hiromi.database.SettingsSnapshot;
 import nl.daanh.hiromi.models.configuration.IHiromiConfig;
 
 import java.util.List;
@@ -14,11 +15,13 @@ public class GuildMessageCommandContext implements ICommandContext {
     private final GuildMessageReceivedEvent event;
     private final List<String> args;
     private final IHiromiConfig configuration;
+    private final SettingsSnapshot settings;
 
     public GuildMessageCommandContext(GuildMessageReceivedEvent event, List<String> args, IHiromiConfig configuration) {
         this.event = event;
         this.args = args;
         this.configuration = configuration;
+        this.settings = new SettingsSnapshot(configuration.getDatabaseManager());
     }
 
     public List<String> getArgs() {
@@ -30,6 +33,11 @@ public class GuildMessageCommandContext implements ICommandContext {
         return this.configuration;
     }
 
+    @Override
+    public SettingsSnapshot getSettings() {
+        return this.settings;
+    }
+
     @Override
     public void replyInstant(String content) {
         this.event.getMessage().reply(content).queue();
@@ -7,6 +7,7 @@ import net.dv8tion.jda.api.entities.TextChannel;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.managers.AudioManager;
 import net.dv8tion.jda.api.sharding.ShardManager;
+import nl.daanh.hiromi.database.SettingsSnapshot;
 import nl.daanh.hiromi.models.configuration.IHiromiConfig;
 
 public interface IBaseCommandContext {
@@ -14,8 +15,22 @@ public interface IBaseCommandContext {
 
     IHiromiConfig getConfiguration();
 
+    /**
+     * The guild, member and user settings read during this command, every entity is loaded at most once
+     *
+     * @return the settings of this command
+     */
+    SettingsSnapshot getSettings();
+
     void replyInstant(String content);
 
+    /**
+     * Acknowledges the interaction behind this context if nothing has been replied yet,
+     * contexts that are not backed by an interaction ignore this
+     */
+    default void deferReplyIfPending() {
+    }
+
     Member getMember();
 
     JDA getJDA();
@@ -2,8 +2,18 @@ package nl.daanh.hiromi.models.commandcontext;
 
 import net.dv8tion.jda.api.entities.Message;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface IGenericCommandContext extends IBaseCommandContext {
     void reply(String content);
 
+    /**
+     * Replies without blocking, for use by asynchronous commands
+     *
+     * @param content the content of the reply
+     * @return completes once the reply has been sent
+     */
+    CompletableFuture<?> replyAsync(String content);
+
     void reply(Message content);
 }
@@ -2,14 +2,14 @@ package nl.daanh.hiromi.models.commandcontext;
 
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.events.interaction.SlashCommandEvent;
-import net.dv8tion.jda.api.requests.restaction.interactions.ReplyAction;
+import net.dv8tion.jda.api.requests.RestAction;
 
 import javax.annotation.Nonnull;
 
 public interface ISlashCommandContext extends IBaseCommandContext {
     SlashCommandEvent getEvent();
 
-    ReplyAction reply(@Nonnull String content);
+    RestAction<?> reply(@Nonnull String content, boolean ephemeral);
 
-    ReplyAction reply(@Nonnull Message content);
+    RestAction<?> reply(@Nonnull Message content, boolean ephemeral);
 }
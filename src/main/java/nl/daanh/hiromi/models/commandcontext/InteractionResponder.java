@@ -0,0 +1,61 @@
+package nl.daanh.hiromi.models.commandcontext;
+
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.events.interaction.SlashCommandEvent;
+import net.dv8tion.jda.api.interactions.InteractionHook;
+import net.dv8tion.jda.api.requests.RestAction;
+
+import java.util.function.Function;
+
+/**
+ * Keeps track of how a slash command has been acknowledged, once the reply has been deferred
+ * every reply is sent as a follow-up message through the interaction hook instead.
+ * <p>
+ * The reply is deferred as ephemeral, most replies are. The first follow-up takes over the deferred message including
+ * its ephemeral flag, so a public first reply removes the deferred message and is sent as a message of its own.
+ */
+public class InteractionResponder {
+    private final SlashCommandEvent event;
+    private boolean replied = false;
+    private boolean deferred = false;
+
+    public InteractionResponder(SlashCommandEvent event) {
+        this.event = event;
+    }
+
+    public synchronized RestAction<?> reply(String content, boolean ephemeral) {
+        if (this.deferred)
+            return this.followUp((hook) -> hook.sendMessage(content).setEphemeral(ephemeral), ephemeral);
+
+        this.replied = true;
+        return this.event.reply(content).setEphemeral(ephemeral);
+    }
+
+    public synchronized RestAction<?> reply(Message content, boolean ephemeral) {
+        if (this.deferred)
+            return this.followUp((hook) -> hook.sendMessage(content).setEphemeral(ephemeral), ephemeral);
+
+        this.replied = true;
+        return this.event.reply(content).setEphemeral(ephemeral);
+    }
+
+    private RestAction<?> followUp(Function<InteractionHook, RestAction<Message>> message, boolean ephemeral) {
+        final boolean first = !this.replied;
+        this.replied = true;
+
+        final InteractionHook hook = this.event.getHook();
+        if (!first || ephemeral) return message.apply(hook);
+
+        return hook.deleteOriginal().flatMap((ignored) -> message.apply(hook));
+    }
+
+    /**
+     * Defers the reply when the command has not replied yet, so the interaction does not time out
+     */
+    public synchronized void deferIfPending() {
+        if (this.replied || this.deferred || this.event.isAcknowledged()) return;
+
+        this.deferred = true;
+        this.event.deferReply(true).queue();
+    }
+}
@@ -4,18 +4,23 @@ import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.*;
 import net.dv8tion.jda.api.events.interaction.SlashCommandEvent;
 import net.dv8tion.jda.api.managers.AudioManager;
-import net.dv8tion.jda.api.requests.restaction.interactions.ReplyAction;
+import net.dv8tion.jda.api.requests.RestAction;
 import net.dv8tion.jda.api.sharding.ShardManager;
+import nl.daanh.hiromi.database.SettingsSnapshot;
 import nl.daanh.hiromi.models.configuration.IHiromiConfig;
 import org.jetbrains.annotations.NotNull;
 
 public class SlashCommandContext implements ISlashCommandContext {
     private final SlashCommandEvent event;
     private final IHiromiConfig configuration;
+    private final SettingsSnapshot settings;
+    private final InteractionResponder responder;
 
     public SlashCommandContext(SlashCommandEvent event, IHiromiConfig configuration) {
         this.event = event;
         this.configuration = configuration;
+        this.settings = new SettingsSnapshot(configuration.getDatabaseManager());
+        this.responder = new InteractionResponder(event);
     }
 
     @Override
@@ -23,24 +28,34 @@ public class SlashCommandContext implements ISlashCommandContext {
         return this.configuration;
     }
 
+    @Override
+    public SettingsSnapshot getSettings() {
+        return this.settings;
+    }
+
     @Override
     public SlashCommandEvent getEvent() {
         return this.event;
     }
 
     @Override
-    public ReplyAction reply(@NotNull String content) {
-        return this.event.reply(content);
+    public RestAction<?> reply(@NotNull String content, boolean ephemeral) {
+        return this.responder.reply(content, ephemeral);
     }
 
     @Override
-    public ReplyAction reply(@NotNull Message content) {
-        return this.event.reply(content);
+    public RestAction<?> reply(@NotNull Message content, boolean ephemeral) {
+        return this.responder.reply(content, ephemeral);
     }
 
     @Override
     public void replyInstant(String content) {
-        this.event.reply(content).setEphemeral(true).queue();
+        this.responder.reply(content, true).queue();
+    }
+
+    @Override
+    public void deferReplyIfPending() {
+        this.responder.deferIfPending();
     }
 
     @Override
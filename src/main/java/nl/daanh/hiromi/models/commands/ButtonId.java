@@ -0,0 +1,51 @@
+package nl.daanh.hiromi.models.commands;
+
+import java.util.List;
+
+/**
+ * The verified contents of a button component id
+ */
+public class ButtonId {
+    private final int commandIndex;
+    private final String subtype;
+    private final long authorId;
+    private final long issuedAt;
+    private final List<String> args;
+
+    public ButtonId(int commandIndex, String subtype, long authorId, long issuedAt, List<String> args) {
+        this.commandIndex = commandIndex;
+        this.subtype = subtype;
+        this.authorId = authorId;
+        this.issuedAt = issuedAt;
+        this.args = args;
+    }
+
+    /**
+     * @return the index of the command in the generated command index
+     */
+    public int getCommandIndex() {
+        return this.commandIndex;
+    }
+
+    public String getSubtype() {
+        return this.subtype;
+    }
+
+    /**
+     * @return the id of the only user allowed to press the button
+     */
+    public long getAuthorId() {
+        return this.authorId;
+    }
+
+    /**
+     * @return the unix time in seconds the button was created at
+     */
+    public long getIssuedAt() {
+        return this.issuedAt;
+    }
+
+    public List<String> getArgs() {
+        return this.args;
+    }
+}
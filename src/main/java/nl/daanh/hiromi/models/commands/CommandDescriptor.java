@@ -0,0 +1,140 @@
+package nl.daanh.hiromi.models.commands;
+
+import net.dv8tion.jda.api.Permission;
+import nl.daanh.hiromi.events.PermissionCache;
+import nl.daanh.hiromi.models.commandcontext.IBaseCommandContext;
+import nl.daanh.hiromi.models.commands.annotations.CommandCategory;
+import nl.daanh.hiromi.models.commands.annotations.CommandInvoke;
+
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Everything the annotations of a command declare, validated and generated at compile time
+ */
+public class CommandDescriptor {
+    private final IBaseCommand command;
+    private final CommandCategory.CATEGORY category;
+    private final List<String> invokes;
+    private final Permission[] userPermissions;
+    private final String[] userErrorMessages;
+    private final long userPermissionsRaw;
+    private final Permission[] selfPermissions;
+    private final String[] selfErrorMessages;
+    private final long selfPermissionsRaw;
+    private final RateLimits rateLimits;
+
+    /**
+     * Describes a command, created by the generated command index
+     *
+     * @param command           the command
+     * @param category          the category of the command
+     * @param invokes           the message invokes of the command
+     * @param userPermissions   the permissions the member needs, in declaration order
+     * @param userErrorMessages the error message of every user permission, empty for the default message
+     * @param selfPermissions   the permissions the bot needs, in declaration order
+     * @param selfErrorMessages the error message of every self permission, empty for the default message
+     * @param rateLimits        the rate limits of the command
+     */
+    public CommandDescriptor(IBaseCommand command, CommandCategory.CATEGORY category, List<String> invokes, Permission[] userPermissions, String[] userErrorMessages, Permission[] selfPermissions, String[] selfErrorMessages, RateLimits rateLimits) {
+        this.command = command;
+        this.category = category;
+        this.invokes = invokes;
+
+        this.userPermissions = userPermissions;
+        this.userErrorMessages = new String[userPermissions.length];
+        for (int i = 0; i < userPermissions.length; i++) {
+            this.userErrorMessages[i] = !userErrorMessages[i].equalsIgnoreCase("")
+                    ? userErrorMessages[i]
+                    : String.format("You don't have the permission ``%s``", userPermissions[i]);
+        }
+        this.userPermissionsRaw = Permission.getRaw(userPermissions);
+
+        this.selfPermissions = selfPermissions;
+        this.selfErrorMessages = new String[selfPermissions.length];
+        for (int i = 0; i < selfPermissions.length; i++) {
+            this.selfErrorMessages[i] = !selfErrorMessages[i].equalsIgnoreCase("")
+                    ? selfErrorMessages[i]
+                    : String.format("Oops. It looks like I don't have the permission ``%s``\nAsk the server owner to grant me these privileges.", selfPermissions[i]);
+        }
+        this.selfPermissionsRaw = Permission.getRaw(selfPermissions);
+        this.rateLimits = rateLimits;
+    }
+
+    /**
+     * Finds the first declared permission that is missing
+     *
+     * @return the index of the permission, -1 when none are missing
+     */
+    private static int indexOfMissing(Permission[] permissions, long missing) {
+        for (int i = 0; i < permissions.length; i++) {
+            if ((missing & permissions[i].getRawValue()) != 0) return i;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Checks whether the member and the bot have the permissions the command requires and replies with the first missing one
+     *
+     * @param ctx             the context of the invocation
+     * @param permissionCache the cache the permissions are computed through
+     * @return true when the command is allowed to run
+     */
+    public boolean checkPermissions(IBaseCommandContext ctx, PermissionCache permissionCache) {
+        if (this.userPermissionsRaw != 0) {
+            final long missing = this.userPermissionsRaw & ~permissionCache.getPermissions(ctx.getMember());
+            if (missing != 0) {
+                ctx.replyInstant(this.userErrorMessages[indexOfMissing(this.userPermissions, missing)]);
+                return false;
+            }
+        }
+
+        final long missing = this.selfPermissionsRaw & ~permissionCache.getPermissions(ctx.getSelfMember());
+        if (missing != 0) {
+            ctx.replyInstant(this.selfErrorMessages[indexOfMissing(this.selfPermissions, missing)]);
+            return false;
+        }
+
+        return true;
+    }
+
+    public IBaseCommand getCommand() {
+        return this.command;
+    }
+
+    public CommandCategory.CATEGORY getCategory() {
+        return this.category;
+    }
+
+    public int getCategoryMask() {
+        return this.category.getMask();
+    }
+
+    /**
+     * @return the invokes declared with {@link CommandInvoke}, in declaration order
+     */
+    public List<String> getInvokes() {
+        return this.invokes;
+    }
+
+    public EnumSet<Permission> getUserPermissions() {
+        return Permission.getPermissions(this.userPermissionsRaw);
+    }
+
+    public EnumSet<Permission> getSelfPermissions() {
+        return Permission.getPermissions(this.selfPermissionsRaw);
+    }
+
+    public long getUserPermissionsRaw() {
+        return this.userPermissionsRaw;
+    }
+
+    public long getSelfPermissionsRaw() {
+        return this.selfPermissionsRaw;
+    }
+
+    public RateLimits getRateLimits() {
+        return this.rateLimits;
+    }
+}
@@ -0,0 +1,123 @@
+package nl.daanh.hiromi.models.commands;
+
+import javax.annotation.Nullable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A prefixed command message, the invoke and the arguments are views on the raw content that are only copied when used
+ */
+public class CommandInput {
+    private final String content;
+    private final int invokeStart;
+    private final int invokeEnd;
+    private String invoke;
+    private List<String> args;
+
+    private CommandInput(String content, int invokeStart, int invokeEnd) {
+        this.content = content;
+        this.invokeStart = invokeStart;
+        this.invokeEnd = invokeEnd;
+    }
+
+    /**
+     * Parses a message that starts with the prefix, ignoring case
+     *
+     * @param content the raw content of the message
+     * @param prefix  the prefix commands have to start with
+     * @return the parsed input, null when the message is not a command
+     */
+    @Nullable
+    public static CommandInput parse(String content, String prefix) {
+        final int prefixLength = prefix.length();
+        if (content.length() <= prefixLength || !content.regionMatches(true, 0, prefix, 0, prefixLength)) return null;
+
+        int invokeEnd = prefixLength;
+        while (invokeEnd < content.length() && !isWhitespace(content.charAt(invokeEnd))) invokeEnd++;
+        if (invokeEnd == prefixLength) return null;
+
+        return new CommandInput(content, prefixLength, invokeEnd);
+    }
+
+    /**
+     * Same set of characters as the regex {@code \s}
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * @return the lower cased invoke of the command
+     */
+    public String getInvoke() {
+        if (this.invoke == null)
+            this.invoke = this.content.substring(this.invokeStart, this.invokeEnd).toLowerCase();
+
+        return this.invoke;
+    }
+
+    /**
+     * @return the whitespace separated arguments after the invoke, tokenized on first use
+     */
+    public List<String> getArgs() {
+        if (this.args == null)
+            this.args = new ArgumentList(this.content, this.invokeEnd);
+
+        return this.args;
+    }
+
+    private static class ArgumentList extends AbstractList<String> implements RandomAccess {
+        private final String content;
+        private final int start;
+        // Start and end offsets of every token, packed next to each other
+        private int[] offsets;
+        private int size = -1;
+
+        private ArgumentList(String content, int start) {
+            this.content = content;
+            this.start = start;
+        }
+
+        private void tokenize() {
+            if (this.size != -1) return;
+
+            int[] offsets = new int[8];
+            int size = 0;
+            int position = this.start;
+            final int length = this.content.length();
+
+            while (position < length) {
+                while (position < length && isWhitespace(this.content.charAt(position))) position++;
+                if (position == length) break;
+
+                final int tokenStart = position;
+                while (position < length && !isWhitespace(this.content.charAt(position))) position++;
+
+                if (size * 2 == offsets.length) offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                offsets[size * 2] = tokenStart;
+                offsets[size * 2 + 1] = position;
+                size++;
+            }
+
+            this.offsets = offsets;
+            this.size = size;
+        }
+
+        @Override
+        public String get(int index) {
+            this.tokenize();
+            if (index < 0 || index >= this.size)
+                throw new IndexOutOfBoundsException(String.format("Index %s out of bounds for %s arguments", index, this.size));
+
+            return this.content.substring(this.offsets[index * 2], this.offsets[index * 2 + 1]);
+        }
+
+        @Override
+        public int size() {
+            this.tokenize();
+            return this.size;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package nl.daanh.hiromi.models.commands;
+
+import nl.daanh.hiromi.models.commandcontext.ICommandContext;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A message command that doesn't block while it waits on the data source or Discord
+ */
+public interface IAsyncCommand extends ICommand {
+    /**
+     * Handles the command, the command manager doesn't wait for the returned future
+     *
+     * @param ctx the context of the invocation
+     * @return completes once the command has been handled
+     */
+    CompletableFuture<?> handleAsync(ICommandContext ctx);
+
+    /**
+     * Blocks until the command has been handled, the command manager calls {@link #handleAsync(ICommandContext)} instead
+     */
+    @Override
+    default void handle(ICommandContext ctx) {
+        this.handleAsync(ctx).join();
+    }
+}
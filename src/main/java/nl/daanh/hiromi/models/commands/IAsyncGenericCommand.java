@@ -0,0 +1,26 @@
+package nl.daanh.hiromi.models.commands;
+
+import nl.daanh.hiromi.models.commandcontext.IGenericCommandContext;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A generic command that doesn't block while it waits on the data source or Discord
+ */
+public interface IAsyncGenericCommand extends IGenericCommand {
+    /**
+     * Handles the command, the command manager doesn't wait for the returned future
+     *
+     * @param ctx the context of the invocation
+     * @return completes once the command has been handled
+     */
+    CompletableFuture<?> handleAsync(IGenericCommandContext ctx);
+
+    /**
+     * Blocks until the command has been handled, the command manager calls {@link #handleAsync(IGenericCommandContext)} instead
+     */
+    @Override
+    default void handle(IGenericCommandContext ctx) {
+        this.handleAsync(ctx).join();
+    }
+}
@@ -0,0 +1,39 @@
+package nl.daanh.hiromi.models.commands;
+
+import nl.daanh.hiromi.models.commandcontext.IButtonCommandContext;
+import nl.daanh.hiromi.models.commandcontext.ISlashCommandContext;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A slash command that doesn't block while it waits on the data source or Discord
+ */
+public interface IAsyncSlashCommand extends ISlashCommand {
+    /**
+     * Handles the command, the command manager doesn't wait for the returned future
+     *
+     * @param ctx the context of the invocation
+     * @return completes once the command has been handled
+     */
+    CompletableFuture<?> handleAsync(ISlashCommandContext ctx);
+
+    /**
+     * Handles a button of the command, the command manager doesn't wait for the returned future
+     *
+     * @param subtype the subtype of the button
+     * @param ctx     the context of the button click
+     * @return completes once the button click has been handled
+     */
+    default CompletableFuture<?> handleAsync(String subtype, IButtonCommandContext ctx) {
+        this.handle(subtype, ctx);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Blocks until the command has been handled, the command manager calls {@link #handleAsync(ISlashCommandContext)} instead
+     */
+    @Override
+    default void handle(ISlashCommandContext ctx) {
+        this.handleAsync(ctx).join();
+    }
+}
@@ -0,0 +1,41 @@
+package nl.daanh.hiromi.models.commands;
+
+import nl.daanh.hiromi.models.commands.annotations.RateLimit;
+
+/**
+ * The rate limits of a command as declared with {@link RateLimit}
+ */
+public class RateLimits {
+    /**
+     * The limits of commands without {@link RateLimit}, the same as the defaults of the annotation
+     */
+    public static final RateLimits DEFAULT = new RateLimits(5, 0, 0, 10);
+
+    private final int user;
+    private final int channel;
+    private final int guild;
+    private final long periodMillis;
+
+    public RateLimits(int user, int channel, int guild, int seconds) {
+        this.user = user;
+        this.channel = channel;
+        this.guild = guild;
+        this.periodMillis = seconds * 1000L;
+    }
+
+    public int getUser() {
+        return this.user;
+    }
+
+    public int getChannel() {
+        return this.channel;
+    }
+
+    public int getGuild() {
+        return this.guild;
+    }
+
+    public long getPeriodMillis() {
+        return this.periodMillis;
+    }
+}
@@ -0,0 +1,22 @@
+package nl.daanh.hiromi.models.commands.annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * The amount of times a command may be used per user, channel and guild within a period, 0 means unlimited.
+ * Commands without this annotation use the defaults.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimit {
+    int user() default 5;
+
+    int channel() default 0;
+
+    int guild() default 0;
+
+    /**
+     * @return the seconds it takes for a used up limit to be fully restored
+     */
+    int seconds() default 10;
+}
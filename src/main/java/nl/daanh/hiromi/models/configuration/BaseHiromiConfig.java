@@ -1,12 +1,18 @@
 package nl.daanh.hiromi.models.configuration;
 
+import nl.daanh.hiromi.database.AsyncDatabaseManagerAdapter;
+import nl.daanh.hiromi.database.CachingDatabaseManager;
+import nl.daanh.hiromi.database.GuildPrefixTable;
+import nl.daanh.hiromi.database.IAsyncDatabaseManager;
 import nl.daanh.hiromi.database.IDatabaseManager;
+import nl.daanh.hiromi.database.TimedDatabaseManager;
 import nl.daanh.hiromi.database.api.HiromiApiAsyncDataSource;
 import nl.daanh.hiromi.database.api.HiromiApiSyncDataSource;
 import nl.daanh.hiromi.database.disk.HiromiDiskDataSource;
 import nl.daanh.hiromi.database.postgres.HiromiPostgresDataSource;
 import nl.daanh.hiromi.exceptions.NotImplementedException;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,6 +25,9 @@ public abstract class BaseHiromiConfig implements IHiromiConfig {
 
     private boolean tokenFetched = false;
     private IDatabaseManager databaseManager;
+    private GuildPrefixTable prefixTable;
+    private CachingDatabaseManager databaseCache;
+    private IAsyncDatabaseManager asyncDatabaseManager;
 
     // Generic methods for fetching values
     protected abstract Optional<String> getString(String key);
@@ -61,6 +70,92 @@ public abstract class BaseHiromiConfig implements IHiromiConfig {
         return getInt("DISCORD_SHARDS").or(() -> Optional.of(1)).get();
     }
 
+    @Override
+    public int getEventLaneCount() {
+        return getInt("EVENT_LANES").or(() -> Optional.of(Runtime.getRuntime().availableProcessors())).get();
+    }
+
+    @Override
+    public int getWorkerThreads() {
+        return getInt("WORKER_THREADS").or(() -> Optional.of(Runtime.getRuntime().availableProcessors())).get();
+    }
+
+    @Override
+    public int getMaxWorkerThreads() {
+        return getInt("WORKER_MAX_THREADS").or(() -> Optional.of(this.getWorkerThreads() * 4)).get();
+    }
+
+    @Override
+    public boolean getVirtualThreadsEnabled() {
+        return getBool("VIRTUAL_THREADS_ENABLED").or(() -> Optional.of(false)).get();
+    }
+
+    @Override
+    public int getCommandConcurrency() {
+        return getInt("COMMAND_CONCURRENCY").or(() -> Optional.of(this.getVirtualThreadsEnabled() ? 1024 : this.getMaxWorkerThreads())).get();
+    }
+
+    @Override
+    public int getGuildCommandConcurrency() {
+        return getInt("GUILD_COMMAND_CONCURRENCY").or(() -> Optional.of(2)).get();
+    }
+
+    @Override
+    public int getGuildCommandBudget() {
+        return getInt("GUILD_COMMAND_BUDGET").or(() -> Optional.of(20)).get();
+    }
+
+    @Override
+    public int getEventQueueCapacity() {
+        return getInt("EVENT_QUEUE_CAPACITY").or(() -> Optional.of(10000)).get();
+    }
+
+    @Override
+    public int getEventQueueHighWatermark() {
+        return getInt("EVENT_QUEUE_HIGH_WATERMARK").or(() -> Optional.of(8000)).get();
+    }
+
+    @Override
+    public int getEventQueueLowWatermark() {
+        return getInt("EVENT_QUEUE_LOW_WATERMARK").or(() -> Optional.of(2000)).get();
+    }
+
+    @Override
+    public int getEventInteractionCapacity() {
+        return getInt("EVENT_INTERACTION_CAPACITY").or(() -> Optional.of(1000)).get();
+    }
+
+    @Override
+    public int getMetricsLogInterval() {
+        return getInt("METRICS_LOG_INTERVAL").or(() -> Optional.of(300)).get();
+    }
+
+    @Override
+    public int getRateLimitBuckets() {
+        return getInt("RATE_LIMIT_BUCKETS").or(() -> Optional.of(1 << 20)).get();
+    }
+
+    @Override
+    public int getPermissionCacheSize() {
+        return getInt("PERMISSION_CACHE_SIZE").or(() -> Optional.of(4096)).get();
+    }
+
+    @Override
+    public int getCommandTimeout() {
+        return getInt("COMMAND_TIMEOUT").or(() -> Optional.of(30)).get();
+    }
+
+    @Override
+    @NotNull
+    public String getButtonSecret() {
+        return getString("BUTTON_SECRET").or(() -> Optional.of("")).get();
+    }
+
+    @Override
+    public int getButtonMaxAge() {
+        return getInt("BUTTON_MAX_AGE").or(() -> Optional.of(3600)).get();
+    }
+
     @Override
     @NotNull
     public String getGlobalPrefix() {
@@ -83,6 +178,21 @@ public abstract class BaseHiromiConfig implements IHiromiConfig {
         return getBool("MUSIC_ENABLED").or(() -> Optional.of(false)).get();
     }
 
+    @Override
+    public boolean getGlobalCommandsEnabled() {
+        return getBool("GLOBAL_COMMANDS_ENABLED").or(() -> Optional.of(false)).get();
+    }
+
+    @Override
+    public int getCommandRolloutBatchSize() {
+        return getInt("COMMAND_ROLLOUT_BATCH_SIZE").or(() -> Optional.of(5)).get();
+    }
+
+    @Override
+    public int getCommandRolloutInterval() {
+        return getInt("COMMAND_ROLLOUT_INTERVAL").or(() -> Optional.of(1000)).get();
+    }
+
     @Override
     @NotNull
     public String getGithubLink() {
@@ -129,9 +239,103 @@ public abstract class BaseHiromiConfig implements IHiromiConfig {
                 throw new NotImplementedException("Unknown data source has not ben implemented yet");
         }
 
+        // The cache sits in front of the timings so they only show what actually reaches the data source
+        IDatabaseManager decorated = new TimedDatabaseManager(this.databaseManager);
+        // The async api answers with defaults until it has loaded and writes in the background, the cache would keep
+        // those defaults and the values from before a write for its whole time to live. It caches by itself anyway.
+        if (this.getDatabaseCacheSize() > 0 && !(this.databaseManager instanceof HiromiApiAsyncDataSource)) {
+            this.databaseCache = new CachingDatabaseManager(decorated,
+                    this.getDatabaseCacheSize(),
+                    this.getDatabaseCacheGuildTtl(),
+                    this.getDatabaseCacheMemberTtl(),
+                    this.getDatabaseCacheUserTtl()
+            );
+            decorated = this.databaseCache;
+        }
+
+        this.prefixTable = new GuildPrefixTable(decorated, this.getGlobalPrefix(), this.getPrefixCacheTtl());
+        this.databaseManager = this.prefixTable;
         return this.databaseManager;
     }
 
+    @Override
+    @Nullable
+    public CachingDatabaseManager getDatabaseCache() {
+        if (this.databaseManager == null) this.getDatabaseManager();
+        return this.databaseCache;
+    }
+
+    @Override
+    public int getDatabaseCacheSize() {
+        return getInt("DATABASE_CACHE_SIZE").or(() -> Optional.of(100000)).get();
+    }
+
+    @Override
+    public int getDatabaseCacheGuildTtl() {
+        return getInt("DATABASE_CACHE_GUILD_TTL").or(() -> Optional.of(300)).get();
+    }
+
+    @Override
+    public int getDatabaseCacheMemberTtl() {
+        return getInt("DATABASE_CACHE_MEMBER_TTL").or(() -> Optional.of(60)).get();
+    }
+
+    @Override
+    public int getDatabaseCacheUserTtl() {
+        return getInt("DATABASE_CACHE_USER_TTL").or(() -> Optional.of(300)).get();
+    }
+
+    @Override
+    public int getPrefixCacheTtl() {
+        return getInt("PREFIX_CACHE_TTL").or(() -> Optional.of(300)).get();
+    }
+
+    @Override
+    public int getApiCacheSoftTtl() {
+        return getInt("API_CACHE_SOFT_TTL").or(() -> Optional.of(300)).get();
+    }
+
+    @Override
+    public int getApiCacheHardTtl() {
+        return getInt("API_CACHE_HARD_TTL").or(() -> Optional.of(3600)).get();
+    }
+
+    @Override
+    public int getApiCacheMissingTtl() {
+        return getInt("API_CACHE_MISSING_TTL").or(() -> Optional.of(600)).get();
+    }
+
+    @Override
+    public boolean getApiBatchEnabled() {
+        return getBool("API_BATCH_ENABLED").or(() -> Optional.of(false)).get();
+    }
+
+    @Override
+    public int getApiBatchWindow() {
+        return getInt("API_BATCH_WINDOW").or(() -> Optional.of(5)).get();
+    }
+
+    @Override
+    public int getApiBatchSize() {
+        return getInt("API_BATCH_SIZE").or(() -> Optional.of(25)).get();
+    }
+
+    @Override
+    @NotNull
+    public GuildPrefixTable getPrefixTable() {
+        if (this.prefixTable == null) this.getDatabaseManager();
+        return this.prefixTable;
+    }
+
+    @Override
+    @NotNull
+    public IAsyncDatabaseManager getAsyncDatabaseManager() {
+        if (this.asyncDatabaseManager != null) return this.asyncDatabaseManager;
+
+        this.asyncDatabaseManager = new AsyncDatabaseManagerAdapter(this.getDatabaseManager());
+        return this.asyncDatabaseManager;
+    }
+
     @Override
     @NotNull
     public String getApiToken() {
@@ -1,7 +1,11 @@
 package nl.daanh.hiromi.models.configuration;
 
+import nl.daanh.hiromi.database.CachingDatabaseManager;
+import nl.daanh.hiromi.database.GuildPrefixTable;
+import nl.daanh.hiromi.database.IAsyncDatabaseManager;
 import nl.daanh.hiromi.database.IDatabaseManager;
 
+import javax.annotation.Nullable;
 import java.awt.*;
 
 public interface IHiromiConfig {
@@ -34,6 +38,104 @@ public interface IHiromiConfig {
      */
     int getTotalShards();
 
+    /**
+     * Gets the amount of ordered lanes events are spread over, events of one guild always share a lane
+     *
+     * @return int of the count of event lanes
+     */
+    int getEventLaneCount();
+
+    /**
+     * Gets the amount of threads of the shared worker pool events and commands run on
+     *
+     * @return int of the target worker thread count
+     */
+    int getWorkerThreads();
+
+    /**
+     * Gets the upper bound of worker threads, including threads started to compensate for blocked workers
+     *
+     * @return int of the maximum worker thread count
+     */
+    int getMaxWorkerThreads();
+
+    /**
+     * Whether every command should run on its own virtual thread instead of on the shared worker pool
+     *
+     * @return true when commands should run on virtual threads
+     */
+    boolean getVirtualThreadsEnabled();
+
+    /**
+     * Gets the maximum amount of commands running at once across all guilds
+     *
+     * @return int of the command concurrency
+     */
+    int getCommandConcurrency();
+
+    /**
+     * Gets the maximum amount of commands of a single guild running at once
+     *
+     * @return int of the command concurrency per guild
+     */
+    int getGuildCommandConcurrency();
+
+    /**
+     * Gets the maximum amount of queued and running commands of a single guild, anything over it is throttled
+     *
+     * @return int of the command budget per guild
+     */
+    int getGuildCommandBudget();
+
+    /**
+     * Gets the maximum amount of queued events per event lane
+     *
+     * @return int of the queue capacity of a single lane
+     */
+    int getEventQueueCapacity();
+
+    /**
+     * Gets the queue depth at which a lane starts shedding low priority events
+     *
+     * @return int of the high watermark
+     */
+    int getEventQueueHighWatermark();
+
+    /**
+     * Gets the queue depth a lane has to drain to before it accepts low priority events again
+     *
+     * @return int of the low watermark
+     */
+    int getEventQueueLowWatermark();
+
+    /**
+     * Gets the maximum amount of queued interactions per lane, interactions over it are answered with a busy reply
+     *
+     * @return int of the interaction capacity
+     */
+    int getEventInteractionCapacity();
+
+    /**
+     * Gets the interval over which the pipeline latency percentiles are measured and logged
+     *
+     * @return int of the interval in seconds, 0 disables logging and measures over 300 seconds
+     */
+    int getMetricsLogInterval();
+
+    /**
+     * Gets the amount of token buckets the command rate limiter keeps, every bucket takes 8 bytes
+     *
+     * @return int of the amount of buckets
+     */
+    int getRateLimitBuckets();
+
+    /**
+     * Gets the amount of computed member permissions kept per guild before the guild is cleared
+     *
+     * @return int of the maximum amount of entries per guild
+     */
+    int getPermissionCacheSize();
+
     String getGlobalPrefix();
 
     String getStatusText();
@@ -44,6 +146,147 @@ public interface IHiromiConfig {
 
     IDatabaseManager getDatabaseManager();
 
+    /**
+     * Gets the cache in front of the data source
+     *
+     * @return the database cache, null when caching is disabled
+     */
+    @Nullable
+    CachingDatabaseManager getDatabaseCache();
+
+    /**
+     * Gets the maximum amount of settings the database cache holds
+     *
+     * @return int of the cache size, 0 disables the cache, the async api data source is never cached
+     */
+    int getDatabaseCacheSize();
+
+    /**
+     * Gets how long guild settings are cached
+     *
+     * @return int of the time to live in seconds
+     */
+    int getDatabaseCacheGuildTtl();
+
+    /**
+     * Gets how long member settings are cached
+     *
+     * @return int of the time to live in seconds
+     */
+    int getDatabaseCacheMemberTtl();
+
+    /**
+     * Gets how long user settings are cached
+     *
+     * @return int of the time to live in seconds
+     */
+    int getDatabaseCacheUserTtl();
+
+    /**
+     * Gets how long the prefix of a guild is kept in memory before it's read from the data source again
+     *
+     * @return int of the time to live in seconds
+     */
+    int getPrefixCacheTtl();
+
+    /**
+     * Gets after how long an entity cached from the api is refreshed in the background
+     *
+     * @return int of the soft time to live in seconds
+     */
+    int getApiCacheSoftTtl();
+
+    /**
+     * Gets after how long an entity cached from the api is no longer used
+     *
+     * @return int of the hard time to live in seconds
+     */
+    int getApiCacheHardTtl();
+
+    /**
+     * Gets after how long an entity the api doesn't know is looked up again
+     *
+     * @return int of the time to live in seconds
+     */
+    int getApiCacheMissingTtl();
+
+    /**
+     * Whether entity loads from the api should be combined into batched requests
+     *
+     * @return true when batching is enabled
+     */
+    boolean getApiBatchEnabled();
+
+    /**
+     * Gets how long a load from the api waits for others to join its batch
+     *
+     * @return int of the window in milliseconds
+     */
+    int getApiBatchWindow();
+
+    /**
+     * Gets the maximum amount of entities in a batched api request
+     *
+     * @return int of the batch size
+     */
+    int getApiBatchSize();
+
+    /**
+     * Gets the in memory prefixes of the guilds, backed by the data source
+     *
+     * @return the prefix table
+     */
+    GuildPrefixTable getPrefixTable();
+
+    /**
+     * Gets the non blocking view of the data source
+     *
+     * @return the async database manager
+     */
+    IAsyncDatabaseManager getAsyncDatabaseManager();
+
+    /**
+     * Gets how long an asynchronous command may take before it's reported as timed out
+     *
+     * @return int of the timeout in seconds
+     */
+    int getCommandTimeout();
+
+    /**
+     * Gets the secret button component ids are signed with, a random secret is used when empty
+     *
+     * @return the button secret
+     */
+    String getButtonSecret();
+
+    /**
+     * Gets how long a button can be pressed after it has been created
+     *
+     * @return int of the maximum age in seconds, 0 for forever
+     */
+    int getButtonMaxAge();
+
+    /**
+     * Whether the commands should also be registered as global commands
+     *
+     * @return true when global commands are enabled
+     */
+    boolean getGlobalCommandsEnabled();
+
+    /**
+     * Gets the amount of guilds whose commands are updated at once when a shard starts
+     *
+     * @return int of the rollout batch size
+     */
+    int getCommandRolloutBatchSize();
+
+    /**
+     * Gets the pause between two batches of command updates
+     *
+     * @return int of the interval in milliseconds
+     */
+    int getCommandRolloutInterval();
+
     String getGithubLink();
 
     String getApiToken();
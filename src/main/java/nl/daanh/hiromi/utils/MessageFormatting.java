@@ -11,11 +11,15 @@ import java.util.TimeZone;
 
 public class MessageFormatting {
     public static String currencyFormat(IBaseCommandContext ctx, int amount) {
-        return ctx.getConfiguration().getDatabaseManager().getCurrency(ctx.getGuild()).replace("%", String.valueOf(amount));
+        return ctx.getSettings().getCurrency(ctx.getGuild()).replace("%", String.valueOf(amount));
     }
 
     public static String currencyFormat(IBaseCommandContext ctx, long amount) {
-        return ctx.getConfiguration().getDatabaseManager().getCurrency(ctx.getGuild()).replace("%", String.valueOf(amount));
+        return ctx.getSettings().getCurrency(ctx.getGuild()).replace("%", String.valueOf(amount));
+    }
+
+    public static String currencyFormat(String currency, long amount) {
+        return currency.replace("%", String.valueOf(amount));
     }
 
     public static String currentDateTimeFormatted(TimeZone zoneId) {
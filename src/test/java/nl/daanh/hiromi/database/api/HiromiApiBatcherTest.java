@@ -0,0 +1,225 @@
+package nl.daanh.hiromi.database.api;
+
+import nl.daanh.hiromi.utils.WebUtils;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Runs the batcher against a local stub of the api, every entity it serves has its own path as its only setting
+ */
+class HiromiApiBatcherTest {
+    private static final String BATCH_PATH = "/api/bot/batch";
+    private static final long TIMEOUT = 5;
+
+    private MockWebServer server;
+
+    @BeforeAll
+    static void setUpWebUtils() {
+        WebUtils.setUserAgent("Hiromi-Test");
+        WebUtils.setApiToken("test");
+    }
+
+    @BeforeEach
+    void startServer() throws IOException {
+        this.server = new MockWebServer();
+        this.server.start();
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        this.server.shutdown();
+    }
+
+    private String endpoint() {
+        final String url = this.server.url("/").toString();
+        return url.substring(0, url.length() - 1);
+    }
+
+    private static JSONObject entity(String path) {
+        return new JSONObject().put("settings", new JSONObject().put("path", path));
+    }
+
+    private static JSONObject result(int status, String path) {
+        final JSONObject result = new JSONObject().put("status", status);
+        return status == 200 ? result.put("data", entity(path)) : result;
+    }
+
+    private static JSONArray allFound(List<Object> paths) {
+        final JSONArray data = new JSONArray();
+        for (Object path : paths) {
+            data.put(result(200, (String) path));
+        }
+        return data;
+    }
+
+    private static List<Object> requestedPaths(RecordedRequest request) {
+        // Read from a copy, the dispatcher has read the same request before the test does
+        return new JSONObject(request.getBody().clone().readUtf8()).getJSONArray("requests").toList();
+    }
+
+    /**
+     * Answers batches with the results made by the responder and single fetches with their entity
+     */
+    private void dispatch(Function<List<Object>, JSONArray> responder) {
+        this.server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (BATCH_PATH.equals(request.getPath())) {
+                    final JSONArray data = responder.apply(requestedPaths(request));
+                    return new MockResponse().setBody(new JSONObject().put("data", data).toString());
+                }
+
+                return new MockResponse().setBody(new JSONObject().put("data", entity(request.getPath())).toString());
+            }
+        });
+    }
+
+    private static SettingsMap await(CompletableFuture<SettingsMap> future) throws Exception {
+        return future.get(TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    private static void assertFails(CompletableFuture<SettingsMap> future) {
+        final ExecutionException exception = assertThrows(ExecutionException.class, () -> await(future));
+        assertInstanceOf(IOException.class, exception.getCause());
+    }
+
+    @Test
+    void matchesResultsToLoadsByPosition() throws Exception {
+        this.dispatch(HiromiApiBatcherTest::allFound);
+
+        final HiromiApiBatcher batcher = new HiromiApiBatcher(this.endpoint(), 10_000, 3);
+        final CompletableFuture<SettingsMap> guild = batcher.fetch("/api/bot/guilds/1");
+        final CompletableFuture<SettingsMap> member = batcher.fetch("/api/bot/guilds/1/members/2");
+        final CompletableFuture<SettingsMap> user = batcher.fetch("/api/bot/members/2");
+
+        assertEquals("/api/bot/guilds/1", await(guild).get("path"));
+        assertEquals("/api/bot/guilds/1/members/2", await(member).get("path"));
+        assertEquals("/api/bot/members/2", await(user).get("path"));
+
+        final RecordedRequest request = this.server.takeRequest(TIMEOUT, TimeUnit.SECONDS);
+        assertEquals(BATCH_PATH, request.getPath());
+        assertEquals(List.of("/api/bot/guilds/1", "/api/bot/guilds/1/members/2", "/api/bot/members/2"), requestedPaths(request));
+        assertEquals(1, this.server.getRequestCount());
+    }
+
+    @Test
+    void failsLoadsWithoutResultWhenDataIsShort() throws Exception {
+        this.dispatch((paths) -> new JSONArray().put(result(200, (String) paths.get(0))));
+
+        final HiromiApiBatcher batcher = new HiromiApiBatcher(this.endpoint(), 10_000, 3);
+        final CompletableFuture<SettingsMap> first = batcher.fetch("/api/bot/guilds/1");
+        final CompletableFuture<SettingsMap> second = batcher.fetch("/api/bot/guilds/2");
+        final CompletableFuture<SettingsMap> third = batcher.fetch("/api/bot/guilds/3");
+
+        assertEquals("/api/bot/guilds/1", await(first).get("path"));
+        assertFails(second);
+        assertFails(third);
+    }
+
+    @Test
+    void failsOnlyTheLoadsOfFailedResults() throws Exception {
+        this.dispatch((paths) -> new JSONArray()
+                .put(result(200, (String) paths.get(0)))
+                .put(result(404, (String) paths.get(1)))
+                .put(result(500, (String) paths.get(2))));
+
+        final HiromiApiBatcher batcher = new HiromiApiBatcher(this.endpoint(), 10_000, 3);
+        final CompletableFuture<SettingsMap> found = batcher.fetch("/api/bot/guilds/1");
+        final CompletableFuture<SettingsMap> missing = batcher.fetch("/api/bot/guilds/2");
+        final CompletableFuture<SettingsMap> failed = batcher.fetch("/api/bot/guilds/3");
+
+        assertEquals("/api/bot/guilds/1", await(found).get("path"));
+        assertNull(await(missing));
+        assertFails(failed);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {404, 405})
+    void fallsBackToSingleFetchesWithoutBatchEndpoint(int status) throws Exception {
+        this.server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (BATCH_PATH.equals(request.getPath())) return new MockResponse().setResponseCode(status);
+
+                return new MockResponse().setBody(new JSONObject().put("data", entity(request.getPath())).toString());
+            }
+        });
+
+        final HiromiApiBatcher batcher = new HiromiApiBatcher(this.endpoint(), 10_000, 2);
+        final CompletableFuture<SettingsMap> first = batcher.fetch("/api/bot/guilds/1");
+        final CompletableFuture<SettingsMap> second = batcher.fetch("/api/bot/guilds/2");
+
+        // The loads of the rejected batch are fetched on their own
+        assertEquals("/api/bot/guilds/1", await(first).get("path"));
+        assertEquals("/api/bot/guilds/2", await(second).get("path"));
+        assertEquals(3, this.server.getRequestCount());
+
+        // Later loads no longer try the batch endpoint
+        assertEquals("/api/bot/guilds/3", await(batcher.fetch("/api/bot/guilds/3")).get("path"));
+        assertEquals(4, this.server.getRequestCount());
+
+        assertEquals(BATCH_PATH, this.server.takeRequest(TIMEOUT, TimeUnit.SECONDS).getPath());
+        for (int i = 0; i < 3; i++) {
+            assertEquals("GET", this.server.takeRequest(TIMEOUT, TimeUnit.SECONDS).getMethod());
+        }
+    }
+
+    @Test
+    void flushesWhenTheWindowPasses() throws Exception {
+        this.dispatch(HiromiApiBatcherTest::allFound);
+
+        final HiromiApiBatcher batcher = new HiromiApiBatcher(this.endpoint(), 50, 25);
+        final CompletableFuture<SettingsMap> first = batcher.fetch("/api/bot/guilds/1");
+        final CompletableFuture<SettingsMap> second = batcher.fetch("/api/bot/guilds/2");
+
+        assertEquals("/api/bot/guilds/1", await(first).get("path"));
+        assertEquals("/api/bot/guilds/2", await(second).get("path"));
+
+        final RecordedRequest request = this.server.takeRequest(TIMEOUT, TimeUnit.SECONDS);
+        assertEquals(BATCH_PATH, request.getPath());
+        assertEquals(List.of("/api/bot/guilds/1", "/api/bot/guilds/2"), requestedPaths(request));
+        assertEquals(1, this.server.getRequestCount());
+    }
+
+    @Test
+    void flushesWhenTheBatchIsFull() throws Exception {
+        this.dispatch(HiromiApiBatcherTest::allFound);
+
+        // The window is far longer than the test is allowed to wait, only a full batch gets sent in time
+        final HiromiApiBatcher batcher = new HiromiApiBatcher(this.endpoint(), 60_000, 2);
+        final CompletableFuture<SettingsMap> first = batcher.fetch("/api/bot/guilds/1");
+        final CompletableFuture<SettingsMap> second = batcher.fetch("/api/bot/guilds/2");
+        final CompletableFuture<SettingsMap> third = batcher.fetch("/api/bot/guilds/3");
+
+        assertEquals("/api/bot/guilds/1", await(first).get("path"));
+        assertEquals("/api/bot/guilds/2", await(second).get("path"));
+        assertFalse(third.isDone());
+
+        final RecordedRequest request = this.server.takeRequest(TIMEOUT, TimeUnit.SECONDS);
+        assertEquals(List.of("/api/bot/guilds/1", "/api/bot/guilds/2"), requestedPaths(request));
+        assertEquals(1, this.server.getRequestCount());
+    }
+}
@@ -0,0 +1,100 @@
+package nl.daanh.hiromi.models.commands;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandInputTest {
+    private static final String PREFIX = "hi!";
+
+    private static CommandInput parse(String content) {
+        final CommandInput input = CommandInput.parse(content, PREFIX);
+        assertNotNull(input, content);
+        return input;
+    }
+
+    @Test
+    void parsesInvokeAndArguments() {
+        final CommandInput input = parse("hi!bank take 500");
+
+        assertEquals("bank", input.getInvoke());
+        assertEquals(List.of("take", "500"), input.getArgs());
+    }
+
+    @Test
+    void matchesPrefixIgnoringCase() {
+        final CommandInput input = parse("HI!Ping");
+
+        assertEquals("ping", input.getInvoke());
+        assertTrue(input.getArgs().isEmpty());
+    }
+
+    @Test
+    void ignoresMessagesWithoutPrefix() {
+        assertNull(CommandInput.parse("ping", PREFIX));
+        assertNull(CommandInput.parse("say hi!ping", PREFIX));
+        assertNull(CommandInput.parse("h!ping", PREFIX));
+    }
+
+    @Test
+    void ignoresMessageThatIsOnlyThePrefix() {
+        assertNull(CommandInput.parse("hi!", PREFIX));
+        assertNull(CommandInput.parse("HI!", PREFIX));
+        assertNull(CommandInput.parse("hi", PREFIX));
+    }
+
+    @Test
+    void ignoresWhitespaceBetweenPrefixAndInvoke() {
+        assertNull(CommandInput.parse("hi! ping", PREFIX));
+        assertNull(CommandInput.parse("hi!\tping", PREFIX));
+    }
+
+    @Test
+    void skipsLeadingAndRepeatedWhitespace() {
+        final CommandInput input = parse("hi!bank   take \t\n 500   ");
+
+        assertEquals("bank", input.getInvoke());
+        assertEquals(List.of("take", "500"), input.getArgs());
+    }
+
+    @Test
+    void splitsOnEveryRegexWhitespaceCharacter() {
+        final CommandInput input = parse("hi!say\u000Bone\ftwo\rthree\nfour\tfive six");
+
+        assertEquals("say", input.getInvoke());
+        assertEquals(List.of("one", "two", "three", "four", "five", "six"), input.getArgs());
+    }
+
+    @Test
+    void keepsOtherWhitespaceInArguments() {
+        // Not part of \s, the regex based parsing didn't split on it either
+        final CommandInput input = parse("hi!say one\u00A0two");
+
+        assertEquals(List.of("one\u00A0two"), input.getArgs());
+    }
+
+    @Test
+    void rejectsOutOfBoundsArguments() {
+        final List<String> args = parse("hi!bank take").getArgs();
+
+        assertEquals("take", args.get(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> args.get(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> args.get(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> parse("hi!ping").getArgs().get(0));
+    }
+
+    @Test
+    void supportsEmptyPrefix() {
+        final CommandInput input = CommandInput.parse("ping pong", "");
+
+        assertNotNull(input);
+        assertEquals("ping", input.getInvoke());
+        assertEquals(List.of("pong"), input.getArgs());
+    }
+}